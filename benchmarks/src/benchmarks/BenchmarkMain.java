@@ -0,0 +1,27 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler turned on, so along with how long everything takes we get how much it
+ * allocates (gc.alloc.rate.norm is bytes per operation, the number to watch) and how many collections that caused.
+ * A hot path that suddenly starts allocating is usually the first sign it's about to get slower.
+ *
+ * Pass a regular expression to run only some of them, e.g. "PathFinder" or "Line.cursor". See benchmarks/README.md
+ * for how to build and run these.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "benchmarks\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,116 @@
+package benchmarks;
+
+import characterPanel.CharacterPanel;
+import game.World;
+import game.WorldBuilder;
+import game.screens.Screen;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Painting the terminal. The panel is never put on the screen; it paints into an image instead, which is the same
+ * work minus Swing copying the image to the window at the end. That means it runs headless too.
+ *
+ *  - fullRedraw changes every cell between two frames of a cave, like scrolling the map, and paints everything.
+ *  - partialRedraw moves the player and a few monsters one step, like a normal turn, and paints only the area that
+ *    changed, the way repaintChanged asks Swing to.
+ *
+ * Writing the cells is part of what's timed but it's tiny next to painting them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CharacterPanelBenchmark {
+    private static final long SEED = 20261017L;
+    private static final int MOVERS = 6;
+
+    private CharacterPanel terminal;
+    private BufferedImage screen;
+    private Graphics graphics;
+
+    private World cave;
+    private int width;
+    private int height;
+    private int frame;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        terminal = new CharacterPanel(Screen.SCREEN_WIDTH + 1, Screen.SCREEN_HEIGHT + 1);
+        terminal.setSize(terminal.getPreferredSize());
+        width = terminal.getWidthInCharacters();
+        height = terminal.getHeightInCharacters();
+
+        screen = new BufferedImage(terminal.getWidth(), terminal.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = screen.getGraphics();
+
+        cave = new WorldBuilder(width + 1, height, 1, SEED).makeCaves().build();
+        drawCave(0);
+        terminal.paint(graphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage fullRedraw() {
+        frame ^= 1;
+        drawCave(frame);
+
+        graphics.setClip(null);
+        terminal.paint(graphics);
+        return screen;
+    }
+
+    @Benchmark
+    public BufferedImage partialRedraw() {
+        int from = frame;
+        frame ^= 1;
+
+        int left = width;
+        int top = height;
+        int right = 0;
+        int bottom = 0;
+        for (int i = 0; i < MOVERS; i++) {
+            int x = 5 + i * (width - 10) / MOVERS;
+            int y = 3 + i * (height - 6) / MOVERS;
+
+            drawCell(x + from, y, 0);
+            terminal.write(i == 0 ? '@' : 'z', x + frame, y, i == 0 ? Color.WHITE : Color.GREEN, Color.BLACK);
+
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x + 2);
+            bottom = Math.max(bottom, y + 1);
+        }
+
+        graphics.setClip(left * terminal.getCharWidth(), top * terminal.getCharHeight(),
+                (right - left) * terminal.getCharWidth(), (bottom - top) * terminal.getCharHeight());
+        terminal.paint(graphics);
+        return screen;
+    }
+
+    /**
+     * Draw the cave, shifted over by a column for odd frames so every other frame has something different in nearly
+     * every cell.
+     */
+    private void drawCave(int shift) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                drawCell(x, y, shift);
+        }
+    }
+
+    private void drawCell(int x, int y, int shift) {
+        terminal.write(cave.glyph(x + shift, y, 0), x, y, cave.color(x + shift, y, 0), Color.BLACK);
+    }
+}
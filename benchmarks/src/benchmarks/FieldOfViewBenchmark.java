@@ -0,0 +1,45 @@
+package benchmarks;
+
+import game.World;
+import game.creatures.FieldOfView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out what a viewer in the middle of a level can see. The player's vision radius is 9 right now but items and
+ * level ups change it, so a few radii are measured. Raycasting gets a lot slower as the radius grows; shadowcasting
+ * shouldn't care much about anything but how much is actually in view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FieldOfViewBenchmark {
+    private static final int SIZE = 101;
+
+    @Param({ "RAYCASTING", "SHADOWCASTING" })
+    public FieldOfView.Algorithm algorithm;
+
+    @Param({ "OPEN", "CLUTTERED" })
+    public Layout layout;
+
+    @Param({ "5", "9", "20", "40" })
+    public int radius;
+
+    private FieldOfView fov;
+
+    @Setup
+    public void setUp() {
+        World world = layout.build(SIZE, SIZE);
+        fov = new FieldOfView(world, algorithm);
+    }
+
+    @Benchmark
+    public FieldOfView update() {
+        fov.update(SIZE / 2, SIZE / 2, 0, radius);
+        return fov;
+    }
+}
@@ -0,0 +1,135 @@
+package benchmarks;
+
+import game.Point;
+import game.Rng;
+import game.Tile;
+import game.World;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Levels for the benchmarks to run on. WorldBuilder's caves change every time the builder does, which makes it hard to
+ * tell if a path search got slower or just got a harder cave. So the path finding and field of view benchmarks run on
+ * simple made up levels instead, and anything random in here always rolls the same dice.
+ *
+ *  - OPEN is all floor with a wall around the edge. Nothing gets in the way.
+ *  - CLUTTERED has about a quarter of the floor turned into walls at random, like a cave full of rocks.
+ *  - MAZE is a maze with only one way between any two places, so a search goes down plenty of dead ends.
+ *
+ * The start and goal, near opposite corners, are always floor and there's always a way from one to the other.
+ */
+public enum Layout {
+    OPEN, CLUTTERED, MAZE;
+
+    private static final long SEED = 20261017L;
+    private static final byte FLOOR = (byte)Tile.FLOOR.ordinal();
+    private static final byte WALL = (byte)Tile.WALL.ordinal();
+
+    /**
+     * A one level world with this layout.
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    public World build(int width, int height) {
+        Rng rng = new Rng(SEED);
+        byte[] tiles = new byte[width * height];
+
+        switch (this) {
+            case OPEN:
+                fill(tiles, width, height, FLOOR);
+                break;
+            case CLUTTERED:
+                fill(tiles, width, height, FLOOR);
+                for (int y = 1; y < height - 1; y++) {
+                    for (int x = 1; x < width - 1; x++) {
+                        if (rng.chance(0.25))
+                            tiles[y * width + x] = WALL;
+                    }
+                }
+                break;
+            case MAZE:
+                Arrays.fill(tiles, WALL);
+                carveMaze(tiles, width, height, rng);
+                break;
+        }
+
+        Point start = start();
+        Point goal = goal(width, height);
+        tiles[start.y * width + start.x] = FLOOR;
+        tiles[goal.y * width + goal.x] = FLOOR;
+
+        return new World(width, height, 1, tiles, new Rng(SEED));
+    }
+
+    public static Point start() {
+        return new Point(1, 1, 0);
+    }
+
+    /**
+     * The far corner. Maze passages are on odd rows and columns so that's where the goal goes for every layout.
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    public static Point goal(int width, int height) {
+        return new Point(lastOdd(width - 2), lastOdd(height - 2), 0);
+    }
+
+    private static int lastOdd(int n) {
+        return n % 2 == 1 ? n : n - 1;
+    }
+
+    private static void fill(byte[] tiles, int width, int height, byte inside) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean edge = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                tiles[y * width + x] = edge ? WALL : inside;
+            }
+        }
+    }
+
+    /**
+     * The usual recursive backtracker, with our own stack so a big maze doesn't blow the real one. Cells are on the
+     * odd rows and columns and the walls between them get knocked out as we go.
+     *
+     * http://weblog.jamisbuck.org/2010/12/27/maze-generation-recursive-backtracking
+     */
+    private static void carveMaze(byte[] tiles, int width, int height, Rng rng) {
+        int[] dx = { 2, -2, 0, 0 };
+        int[] dy = { 0, 0, 2, -2 };
+        int maxX = lastOdd(width - 2);
+        int maxY = lastOdd(height - 2);
+
+        ArrayDeque<Integer> stack = new ArrayDeque<Integer>();
+        tiles[width + 1] = FLOOR;
+        stack.push(width + 1);
+
+        while (!stack.isEmpty()) {
+            int cell = stack.peek();
+            int x = cell % width;
+            int y = cell / width;
+
+            int start = rng.nextInt(4);
+            boolean moved = false;
+            for (int i = 0; i < 4 && !moved; i++) {
+                int d = (start + i) % 4;
+                int nx = x + dx[d];
+                int ny = y + dy[d];
+                if (nx < 1 || ny < 1 || nx > maxX || ny > maxY || tiles[ny * width + nx] == FLOOR)
+                    continue;
+
+                tiles[(y + dy[d] / 2) * width + x + dx[d] / 2] = FLOOR;
+                tiles[ny * width + nx] = FLOOR;
+                stack.push(ny * width + nx);
+                moved = true;
+            }
+
+            if (!moved)
+                stack.pop();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import game.Line;
+import game.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The different ways of getting the points along a Line. getPoints makes every Point and a list to hold them, iterating
+ * makes the Points one at a time, and the Cursor and walk don't make any. With -prof gc the allocation column should
+ * show exactly that; if the cursor ever starts allocating, something's wrong.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LineBenchmark {
+
+    @Param({ "5", "20", "80" })
+    public int length;
+
+    private int x1;
+    private int y1;
+    private Line.Cursor cursor = new Line.Cursor();
+
+    @Setup
+    public void setUp() {
+        // Not quite diagonal so both of Bresenham's steps get used.
+        x1 = length;
+        y1 = length / 3;
+    }
+
+    @Benchmark
+    public List<Point> getPoints() {
+        return new Line(0, 0, x1, y1).getPoints();
+    }
+
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        for (Point p : new Line(0, 0, x1, y1))
+            sum += p.x + p.y;
+        return sum;
+    }
+
+    @Benchmark
+    public int cursor() {
+        int sum = 0;
+        cursor.reset(0, 0, x1, y1);
+        do {
+            sum += cursor.x() + cursor.y();
+        } while (cursor.next());
+        return sum;
+    }
+
+    @Benchmark
+    public boolean walk() {
+        return Line.walk(0, 0, x1, y1, new Line.Visitor() {
+            public boolean visit(int x, int y) {
+                return x >= 0;
+            }
+        });
+    }
+}
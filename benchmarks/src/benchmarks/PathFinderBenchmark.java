@@ -0,0 +1,58 @@
+package benchmarks;
+
+import game.PathFinder;
+import game.Point;
+import game.World;
+import game.creatures.Creature;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One A* search from one corner of a level to the other. Open floor is the easy case, clutter makes the search spread
+ * out around the rocks, and a maze makes it go down dead ends until it's closed most of the level. The search is
+ * allowed to look at every location so it always finds the way.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PathFinderBenchmark {
+
+    @Param({ "OPEN", "CLUTTERED", "MAZE" })
+    public Layout layout;
+
+    @Param({ "80", "200" })
+    public int width;
+
+    private PathFinder pathFinder;
+    private Creature walker;
+    private Point start;
+    private Point goal;
+    private int maxTries;
+
+    @Setup
+    public void setUp() {
+        int height = width / 2;
+        World world = layout.build(width, height);
+
+        // The walker is never put in the world, it's only there to ask what it can walk on.
+        walker = new Creature(world, '@', Color.WHITE, "walker", 10, 0, 0, 0);
+        pathFinder = world.pathFinder();
+        start = Layout.start();
+        goal = Layout.goal(width, height);
+        maxTries = width * height;
+
+        if (findPath() == null)
+            throw new IllegalStateException("There's no path across the " + layout + " layout.");
+    }
+
+    @Benchmark
+    public ArrayList<Point> findPath() {
+        return pathFinder.findPath(walker, start, goal, maxTries);
+    }
+}
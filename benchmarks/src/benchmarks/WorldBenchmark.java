@@ -0,0 +1,47 @@
+package benchmarks;
+
+import game.World;
+import game.creatures.Creature;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the creature at every location on a level, the same as drawing the screen does. With the occupancy grid
+ * this shouldn't depend on how many creatures there are at all; if it starts to, somebody's walking a list again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WorldBenchmark {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 100;
+
+    @Param({ "0", "50", "500", "5000" })
+    public int population;
+
+    private World world;
+
+    @Setup
+    public void setUp() {
+        world = Layout.OPEN.build(WIDTH, HEIGHT);
+        for (int i = 0; i < population; i++)
+            world.addAtEmptyLocation(new Creature(world, 'b', Color.YELLOW, "bat", 15, 5, 0, 8), 0);
+    }
+
+    @Benchmark
+    public int creatureLookup() {
+        int found = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (world.creature(x, y, 0) != null)
+                    found++;
+            }
+        }
+        return found;
+    }
+}
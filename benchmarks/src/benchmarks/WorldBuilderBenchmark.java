@@ -0,0 +1,50 @@
+package benchmarks;
+
+import game.World;
+import game.WorldBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long it takes to build a whole cave world, from the random tiles through smoothing, regions, connecting them, and
+ * the stairs. The sizes go from what the game uses now (a screen's worth, 5 levels deep) up to one huge level, which is
+ * where anything that's not linear really shows up.
+ *
+ * Both ways of smoothing are measured so we can see the packed smoother is still paying for itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorldBuilderBenchmark {
+    private static final long SEED = 20261017L;
+
+    @Param({ "80x24x5", "200x100x5", "1000x1000x1" })
+    public String size;
+
+    @Param({ "true", "false" })
+    public boolean packedSmoothing;
+
+    private int width;
+    private int height;
+    private int depth;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        width = Integer.parseInt(parts[0]);
+        height = Integer.parseInt(parts[1]);
+        depth = Integer.parseInt(parts[2]);
+    }
+
+    @Benchmark
+    public World makeCaves() {
+        return new WorldBuilder(width, height, depth, SEED)
+                .usePackedSmoothing(packedSmoothing)
+                .makeCaves()
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import game.World;
+import game.WorldBuilder;
+import game.creatures.Creature;
+import game.creatures.CreatureFactory;
+import game.creatures.FieldOfView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole turns on a level populated the way PlayScreen does it: fungi, bats, zombies, goblins, and an alicorn, all
+ * hunting a player who just stands there.
+ *
+ * A level changes as it's played. Fungi spread, bats wander, and the hunters pile up around the player, so timing
+ * one turn at a time over a second would mostly measure whatever the level had turned into by then. Instead every
+ * iteration starts on a fresh level and times its first TURNS turns as one shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, batchSize = WorldUpdateBenchmark.TURNS)
+@Measurement(iterations = 20, batchSize = WorldUpdateBenchmark.TURNS)
+public class WorldUpdateBenchmark {
+    static final int TURNS = 100;
+    private static final long SEED = 20261017L;
+
+    @Param({ "80x24", "200x100" })
+    public String size;
+
+    /**
+     * How many times PlayScreen's numbers of each monster to put on the level.
+     */
+    @Param({ "1", "4" })
+    public int crowd;
+
+    private World world;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        String[] parts = size.split("x");
+        world = new WorldBuilder(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 1, SEED)
+                .makeCaves()
+                .build();
+
+        List<String> messages = new ArrayList<String>();
+        CreatureFactory factory = new CreatureFactory(world);
+        Creature player = factory.newPlayer(messages, new FieldOfView(world));
+
+        for (int i = 0; i < crowd; i++) {
+            for (int j = 0; j < 2; j++)
+                factory.newFungus(0);
+            for (int j = 0; j < 20; j++)
+                factory.newBat(0);
+            for (int j = 0; j < 3; j++) {
+                factory.newZombie(0, player);
+                factory.newGoblin(0, player);
+            }
+            factory.newAlicorn(0);
+        }
+
+        world.setFocus(player);
+    }
+
+    @Benchmark
+    public World update() {
+        world.update();
+        return world;
+    }
+}
@@ -0,0 +1,222 @@
+package characterPanel;
+
+import java.awt.AlphaComposite;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The ACCELERATED backend for CharacterPanel. Instead of painting into an offscreen Image and letting Swing copy it to
+ * the screen, this draws the whole grid straight into a BufferStrategy (two pages; we draw into the back one and flip)
+ * and everything it draws lives in video memory.
+ *
+ * The glyphs are kept in atlases, one VolatileImage per foreground color with every glyph we've needed drawn into it in
+ * that color on a transparent background. Drawing a cell is a fillRect for the background and a drawImage of the glyph's
+ * part of the atlas, both of which the graphics card does for us. Every color's atlas puts a glyph in the same slot.
+ *
+ * VolatileImages can lose their contents whenever the OS feels like it (switching users, the screen saver, etc.), so
+ * each frame checks them first and redraws the glyphs into any that were lost.
+ *
+ * https://docs.oracle.com/javase/tutorial/extra/fullscreen/bufferstrategy.html
+ */
+class AcceleratedCharacterCanvas extends Canvas {
+    private static final long serialVersionUID = 5310922470136582140L;
+
+    private static final int ATLAS_COLUMNS = 64;
+    private static final int ATLAS_ROWS = 32;
+    private static final int ATLAS_SLOTS = ATLAS_COLUMNS * ATLAS_ROWS;
+
+    private CharacterPanel panel;
+    private int charWidth;
+    private int charHeight;
+    private BufferStrategy strategy;
+
+    // Which atlas slot each character is in, plus one so zero means it doesn't have one yet.
+    private int[] slots = new int[GlyphTable.SIZE];
+    private int nextSlot;
+
+    private HashMap<Integer, Atlas> atlases = new HashMap<Integer, Atlas>();
+    private Atlas lastAtlas;
+
+    AcceleratedCharacterCanvas(CharacterPanel panel) {
+        this.panel = panel;
+        this.charWidth = panel.getCharWidth();
+        this.charHeight = panel.getCharHeight();
+
+        Dimension size = new Dimension(charWidth * panel.getWidthInCharacters(), charHeight * panel.getHeightInCharacters());
+        setPreferredSize(size);
+        setSize(size);
+
+        // Key presses go to the window, not to us.
+        setFocusable(false);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        render();
+    }
+
+    @Override
+    public void update(Graphics g) {
+        render();
+    }
+
+    /**
+     * Draw every cell into the back page and flip it onto the screen.
+     */
+    public void render() {
+        if (!isDisplayable())
+            return;
+
+        if (strategy == null) {
+            createBufferStrategy(2);
+            strategy = getBufferStrategy();
+        }
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        for (Atlas atlas : atlases.values())
+            atlas.validate(gc);
+
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    drawCells(g, gc);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+        panel.markPainted();
+    }
+
+    private void drawCells(Graphics g, GraphicsConfiguration gc) {
+        Color current = null;
+
+        for (int y = 0; y < panel.getHeightInCharacters(); y++) {
+            for (int x = 0; x < panel.getWidthInCharacters(); x++) {
+                Color background = panel.getBackgroundColorAt(x, y);
+                if (background != current) {
+                    g.setColor(background);
+                    current = background;
+                }
+                g.fillRect(x * charWidth, y * charHeight, charWidth, charHeight);
+
+                atlas(panel.getForegroundColorAt(x, y), gc).draw(g, panel.getCharAt(x, y), x * charWidth, y * charHeight);
+            }
+        }
+    }
+
+    private Atlas atlas(Color foreground, GraphicsConfiguration gc) {
+        int rgb = foreground.getRGB() | 0xFF000000;
+        if (lastAtlas != null && lastAtlas.rgb == rgb)
+            return lastAtlas;
+
+        Atlas atlas = atlases.get(rgb);
+        if (atlas == null) {
+            atlas = new Atlas(rgb);
+            atlas.validate(gc);
+            atlases.put(rgb, atlas);
+        }
+        lastAtlas = atlas;
+        return atlas;
+    }
+
+    /**
+     * The atlas slot for this character, or -1 if the atlases are full.
+     */
+    private int slot(int codePoint) {
+        if (slots[codePoint] == 0) {
+            if (nextSlot == ATLAS_SLOTS)
+                return -1;
+            slots[codePoint] = ++nextSlot;
+        }
+        return slots[codePoint] - 1;
+    }
+
+    /**
+     * The glyph as a solid rgb shape on a transparent background. Like the LookupOp in CharacterPanel, any pixel that
+     * isn't black in the original glyph is foreground.
+     */
+    private BufferedImage mask(int codePoint, int rgb) {
+        BufferedImage mask = new BufferedImage(charWidth, charHeight, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage glyph = CharacterPanel.glyphs.glyph(codePoint);
+        if (glyph == null)
+            return mask;
+
+        int width = Math.min(charWidth, glyph.getWidth());
+        int height = Math.min(charHeight, glyph.getHeight());
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                if ((glyph.getRGB(px, py) & 0xFFFFFF) != 0)
+                    mask.setRGB(px, py, rgb);
+            }
+        }
+        return mask;
+    }
+
+    private class Atlas {
+        private int rgb;
+        private VolatileImage image;
+        private boolean[] drawn = new boolean[ATLAS_SLOTS];
+
+        private Atlas(int rgb) {
+            this.rgb = rgb;
+        }
+
+        private void validate(GraphicsConfiguration gc) {
+            int status = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(gc);
+
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (image != null)
+                    image.flush();
+                image = gc.createCompatibleVolatileImage(ATLAS_COLUMNS * charWidth, ATLAS_ROWS * charHeight,
+                        Transparency.BITMASK);
+            }
+
+            if (status != VolatileImage.IMAGE_OK) {
+                Graphics2D g = image.createGraphics();
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.dispose();
+                Arrays.fill(drawn, false);
+            }
+        }
+
+        private void draw(Graphics g, int codePoint, int x, int y) {
+            int slot = slot(codePoint);
+            if (slot == -1) {
+                // Out of room in the atlas, draw it the slow way.
+                g.drawImage(mask(codePoint, rgb), x, y, null);
+                return;
+            }
+
+            int sx = (slot % ATLAS_COLUMNS) * charWidth;
+            int sy = (slot / ATLAS_COLUMNS) * charHeight;
+
+            if (!drawn[slot]) {
+                Graphics2D ag = image.createGraphics();
+                ag.setComposite(AlphaComposite.Src);
+                ag.drawImage(mask(codePoint, rgb), sx, sy, null);
+                ag.dispose();
+                drawn[slot] = true;
+            }
+
+            g.drawImage(image, x, y, x + charWidth, y + charHeight, sx, sy, sx + charWidth, sy + charHeight, null);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package characterPanel;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Renderer for a text terminal (anything that understands ANSI/VT100 escape codes, which is nearly everything these
+ * days, including a terminal on the other end of an SSH connection).
+ *
+ * Screens draw into the cells like normal and flush sends the screen to the terminal. Only the cells that changed since
+ * the last flush are sent. We only move the cursor when the next changed cell isn't right where the cursor already is,
+ * and we only change colors when they're different from the last cell we sent, so a typical turn is a few dozen bytes.
+ *
+ * Colors are sent as 24 bit color, which most terminals support.
+ * https://en.wikipedia.org/wiki/ANSI_escape_code
+ */
+public class AnsiRenderer extends HeadlessRenderer {
+    private static final String ESC = "\033[";
+
+    private Writer out;
+    private char[] shownChars;
+    private Color[] shownForegroundColors;
+    private Color[] shownBackgroundColors;
+    private boolean started;
+
+    public AnsiRenderer(int width, int height, OutputStream out) {
+        super(width, height);
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.shownChars = new char[width * height];
+        this.shownForegroundColors = new Color[width * height];
+        this.shownBackgroundColors = new Color[width * height];
+    }
+
+    /**
+     * Send whatever changed since the last flush to the terminal. The first flush clears the terminal and sends
+     * everything.
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        StringBuilder text = new StringBuilder();
+
+        if (!started) {
+            text.append(ESC).append("?25l");    // hide the cursor
+            text.append(ESC).append("2J");      // clear the screen
+        }
+
+        int cursorX = -1;
+        int cursorY = -1;
+        Color foreground = null;
+        Color background = null;
+
+        for (int y = 0; y < heightInCharacters; y++) {
+            for (int x = 0; x < widthInCharacters; x++) {
+                int i = y * widthInCharacters + x;
+                if (started
+                        && shownChars[i] == chars[i]
+                        && sameColor(shownForegroundColors[i], foregroundColors[i])
+                        && sameColor(shownBackgroundColors[i], backgroundColors[i]))
+                    continue;
+
+                if (x != cursorX || y != cursorY)
+                    text.append(ESC).append(y + 1).append(';').append(x + 1).append('H');
+
+                boolean newForeground = !sameColor(foreground, foregroundColors[i]);
+                boolean newBackground = !sameColor(background, backgroundColors[i]);
+                if (newForeground || newBackground) {
+                    text.append(ESC);
+                    if (newForeground)
+                        appendColor(text.append("38;2;"), foregroundColors[i]);
+                    if (newForeground && newBackground)
+                        text.append(';');
+                    if (newBackground)
+                        appendColor(text.append("48;2;"), backgroundColors[i]);
+                    text.append('m');
+                    foreground = foregroundColors[i];
+                    background = backgroundColors[i];
+                }
+
+                text.append(printable(chars[i]));
+                cursorX = x + 1;
+                cursorY = y;
+
+                shownChars[i] = chars[i];
+                shownForegroundColors[i] = foregroundColors[i];
+                shownBackgroundColors[i] = backgroundColors[i];
+            }
+        }
+
+        started = true;
+
+        if (text.length() > 0) {
+            out.write(text.toString());
+            out.flush();
+        }
+    }
+
+    /**
+     * Put the terminal back the way we found it.
+     *
+     * @throws IOException
+     */
+    public void reset() throws IOException {
+        out.write(ESC + "0m" + ESC + "?25h" + ESC + (heightInCharacters + 1) + ";1H\n");
+        out.flush();
+        started = false;
+    }
+
+    private static boolean sameColor(Color a, Color b) {
+        return a == b || a != null && b != null && a.getRGB() == b.getRGB();
+    }
+
+    private static void appendColor(StringBuilder text, Color color) {
+        text.append(color.getRed()).append(';').append(color.getGreen()).append(';').append(color.getBlue());
+    }
+
+    /**
+     * Control characters would do things to the terminal instead of showing up, so show a placeholder instead.
+     */
+    private static char printable(char character) {
+        if (character < 32 || character >= 127 && character < 160)
+            return '?';
+        return character;
+    }
+}
@@ -1,7 +1,9 @@
 package characterPanel;
 
 
+import game.Perf;
 import game.Tile;
+import game.events.FramePaintEvent;
 
 import javax.swing.*;
 import java.awt.*;
@@ -9,7 +11,6 @@ import java.awt.image.BufferedImage;
 import java.awt.image.LookupOp;
 import java.awt.image.ShortLookupTable;
 import java.io.UnsupportedEncodingException;
-import java.util.HashMap;
 
 import static game.screens.PlayScreen.createTiles;
 
@@ -18,9 +19,19 @@ import static game.screens.PlayScreen.createTiles;
  * This simulates a code page 437 ASCII terminal display.
  * @author Trystan Spangler
  */
-public class CharacterPanel extends JPanel {
+public class CharacterPanel extends JPanel implements Renderer {
 	private static final long serialVersionUID = -4167851861147593092L;
 
+    /**
+     * How the characters get onto the screen. SWING paints into an offscreen image and lets Swing copy the changed
+     * parts to the window. ACCELERATED draws into a Canvas with page flipping and keeps the glyphs in video memory,
+     * see AcceleratedCharacterCanvas. Either way you write to the panel exactly the same way.
+     */
+    public enum Backend {
+        SWING,
+        ACCELERATED
+    }
+
     public static Color black = new Color(0, 0, 0);
     public static Color red = new Color(128, 0, 0);
     public static Color green = new Color(0, 128, 0);
@@ -38,6 +49,8 @@ public class CharacterPanel extends JPanel {
     public static Color brightCyan = new Color(0, 255, 255);
     public static Color brightWhite = new Color(255, 255, 255);
 
+    private Backend backend;
+    private AcceleratedCharacterCanvas canvas;
     private Image offscreenBuffer;
     private Graphics offscreenGraphics;
     private int widthInCharacters;
@@ -46,7 +59,7 @@ public class CharacterPanel extends JPanel {
     private Color defaultForegroundColor;
     private int cursorX;
     private int cursorY;
-    public static HashMap<Character, BufferedImage> glyphMap;
+    public static GlyphTable glyphs;
     private int[][] chars;
     private Color[][] backgroundColors;
     private Color[][] foregroundColors;
@@ -54,9 +67,13 @@ public class CharacterPanel extends JPanel {
     private Color[][] oldBackgroundColors;
     private Color[][] oldForegroundColors;
 
+    /**
+     * Coloring a glyph makes a whole new image, so we hang on to the ones we've already colored.
+     */
+    private TintedGlyphCache tintedGlyphs = new TintedGlyphCache(4096);
+
     private static int charWidth = 9;
     private static int charHeight = 18; //18
-    // public static BufferedImage[] glyphArray;
 
     /**
      * Gets the height, in pixels, of a character.
@@ -196,7 +213,17 @@ public class CharacterPanel extends JPanel {
      * @param height
      */
     public CharacterPanel(int width, int height) throws UnsupportedEncodingException {
-        super();
+        this(width, height, Backend.SWING);
+    }
+
+    /**
+     * Class constructor specifying the width and height in characters and how to draw them.
+     * @param width
+     * @param height
+     * @param backend
+     */
+    public CharacterPanel(int width, int height, Backend backend) throws UnsupportedEncodingException {
+        super(new BorderLayout());
 
         if (width < 1)
             throw new IllegalArgumentException("width " + width + " must be greater than 0." );
@@ -219,13 +246,67 @@ public class CharacterPanel extends JPanel {
         oldBackgroundColors = new Color[widthInCharacters][heightInCharacters];
         oldForegroundColors = new Color[widthInCharacters][heightInCharacters];
 
-        //glyphArray = new BufferedImage[65536];
-        glyphMap = new HashMap<>();
+        glyphs = new GlyphTable("DejaVu Sans Mono", 15);
 
-        // Create all the glyphs/tiles and load them into a hashmap.
+        // Create all the glyphs/tiles and load them into the glyph table. Anything else gets drawn when it's first used.
         createTiles();
 
         CharacterPanel.this.clear();
+
+        this.backend = backend;
+        if (backend == Backend.ACCELERATED) {
+            canvas = new AcceleratedCharacterCanvas(this);
+            add(canvas, BorderLayout.CENTER);
+        }
+    }
+
+    /**
+     * Gets how this panel draws its characters.
+     * @return
+     */
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Gets the character at a position.
+     * @param x
+     * @param y
+     * @return
+     */
+    public char getCharAt(int x, int y) {
+        return (char)chars[x][y];
+    }
+
+    /**
+     * Gets the foreground color at a position.
+     * @param x
+     * @param y
+     * @return
+     */
+    public Color getForegroundColorAt(int x, int y) {
+        return foregroundColors[x][y];
+    }
+
+    /**
+     * Gets the background color at a position.
+     * @param x
+     * @param y
+     * @return
+     */
+    public Color getBackgroundColorAt(int x, int y) {
+        return backgroundColors[x][y];
+    }
+
+    /**
+     * Everything on the panel has been drawn to the screen, so nothing has changed since.
+     */
+    void markPainted() {
+        for (int x = 0; x < widthInCharacters; x++) {
+            System.arraycopy(chars[x], 0, oldChars[x], 0, heightInCharacters);
+            System.arraycopy(foregroundColors[x], 0, oldForegroundColors[x], 0, heightInCharacters);
+            System.arraycopy(backgroundColors[x], 0, oldBackgroundColors[x], 0, heightInCharacters);
+        }
     }
     
     @Override
@@ -238,34 +319,50 @@ public class CharacterPanel extends JPanel {
 
         if (g == null)
             throw new NullPointerException();
-        
+
+        if (canvas != null) {
+            // The canvas draws itself.
+            super.paint(g);
+            return;
+        }
+
+        long start = Perf.start();
+        FramePaintEvent event = new FramePaintEvent();
+        event.begin();
+        int redrawn = 0;
+
         if (offscreenBuffer == null){
-            offscreenBuffer = createImage(this.getWidth(), this.getHeight()); 
+            offscreenBuffer = createImage(this.getWidth(), this.getHeight());
+            if (offscreenBuffer == null) // Not on the screen (the benchmarks paint into an image), so make our own.
+                offscreenBuffer = new BufferedImage(this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_RGB);
             offscreenGraphics = offscreenBuffer.getGraphics();
         }
         
         for (int x = 0; x < widthInCharacters; x++) {
             for (int y = 0; y < heightInCharacters; y++) {
-            	if (oldBackgroundColors[x][y] == backgroundColors[x][y]
-            	 && oldForegroundColors[x][y] == foregroundColors[x][y]
-            	 && oldChars[x][y] == chars[x][y])
+            	if (!isChanged(x, y))
             		continue;
-            	
+
+                redrawn++;
                 Color bg = backgroundColors[x][y];
                 Color fg = foregroundColors[x][y];
 
-                LookupOp op = setColors(bg, fg);
                 try {
-                    //BufferedImage img = op.filter(glyphArray[chars[x][y]], null);
-                    // The op.filter somehow colors the glyphs.
-                    BufferedImage img = op.filter((BufferedImage)glyphMap.get((char)chars[x][y]), null);
+                    long key = TintedGlyphCache.key(chars[x][y], fg, bg);
+                    BufferedImage img = tintedGlyphs.get(key);
+                    if (img == null) {
+                        // The op.filter somehow colors the glyphs.
+                        LookupOp op = setColors(bg, fg);
+                        img = op.filter(glyphs.glyph(chars[x][y]), null);
+                        tintedGlyphs.put(key, img);
+                    }
                     offscreenGraphics.drawImage(img, x * charWidth, y * charHeight, null);
                 } catch (NullPointerException npe) {
                     System.out.println("===START====");
                     System.out.println("Null Pointer Caught!");
                     System.out.println(" - chars[" + x + "][" + y + "] = \'" + (char)chars[x][y] +
                             "\' (" + chars[x][y] + ")");
-                    System.out.println(" - glyphmap: " + glyphMap.get(chars[x][y]));
+                    System.out.println(" - glyph: " + glyphs.glyph(chars[x][y]));
                     System.out.println("====END=====");
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -278,7 +375,95 @@ public class CharacterPanel extends JPanel {
             }
         }
         
-        g.drawImage(offscreenBuffer,0,0,this);
+        // Only copy the part of the buffer Swing asked us to paint; usually that's just what repaintChanged asked for.
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            g.drawImage(offscreenBuffer,0,0,this);
+        } else {
+            g.drawImage(offscreenBuffer,
+                    clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                    clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, this);
+        }
+
+        Perf.stop(Perf.PAINT, start);
+        if (event.shouldCommit()) {
+            event.cellsRedrawn = redrawn;
+            event.cells = widthInCharacters * heightInCharacters;
+            event.commit();
+        }
+    }
+
+    /**
+     * Has this cell changed since it was last painted?
+     */
+    private boolean isChanged(int x, int y) {
+        return oldBackgroundColors[x][y] != backgroundColors[x][y]
+                || oldForegroundColors[x][y] != foregroundColors[x][y]
+                || oldChars[x][y] != chars[x][y];
+    }
+
+    /**
+     * Repaint only the cells that are different from what's on the screen, instead of the whole panel. Rows next to
+     * each other that have changes are grouped into one rectangle, as wide as the changes in those rows, so a player
+     * and a few monsters moving around only repaint a few small areas. Swing is free to merge the rectangles before it
+     * paints, but either way we only copy what changed from the offscreen buffer to the screen.
+     *
+     * Writing the same thing to a cell twice, like clearing the screen and drawing it again, doesn't count as a change.
+     */
+    public void repaintChanged() {
+        if (canvas != null) {
+            repaintCanvas();
+            return;
+        }
+
+        int top = -1;
+        int left = 0;
+        int right = 0;
+
+        for (int y = 0; y < heightInCharacters; y++) {
+            int rowLeft = -1;
+            int rowRight = -1;
+            for (int x = 0; x < widthInCharacters; x++) {
+                if (isChanged(x, y)) {
+                    if (rowLeft == -1) rowLeft = x;
+                    rowRight = x;
+                }
+            }
+
+            if (rowLeft == -1) {
+                if (top != -1)
+                    repaintCells(left, top, right - left + 1, y - top);
+                top = -1;
+            } else if (top == -1) {
+                top = y;
+                left = rowLeft;
+                right = rowRight;
+            } else {
+                left = Math.min(left, rowLeft);
+                right = Math.max(right, rowRight);
+            }
+        }
+
+        if (top != -1)
+            repaintCells(left, top, right - left + 1, heightInCharacters - top);
+    }
+
+    /**
+     * A page flip redraws the whole grid anyway so all we need to know is whether anything changed at all.
+     */
+    private void repaintCanvas() {
+        for (int x = 0; x < widthInCharacters; x++) {
+            for (int y = 0; y < heightInCharacters; y++) {
+                if (isChanged(x, y)) {
+                    canvas.render();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void repaintCells(int x, int y, int width, int height) {
+        repaint(x * charWidth, y * charHeight, width * charWidth, height * charHeight);
     }
 
     /**
@@ -335,8 +520,8 @@ public class CharacterPanel extends JPanel {
      * @return this     for convenient chaining of method calls
      */
     public CharacterPanel clear(char character) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         return clear(character, 0, 0, widthInCharacters, heightInCharacters, defaultForegroundColor, defaultBackgroundColor);
     }
@@ -349,8 +534,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel clear(char character, Color foreground, Color background) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         return clear(character, 0, 0, widthInCharacters, heightInCharacters, foreground, background);
     }
@@ -365,8 +550,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel clear(char character, int x, int y, int width, int height) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")." );
@@ -402,8 +587,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel clear(char character, int x, int y, int width, int height, Color foreground, Color background) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -423,11 +608,19 @@ public class CharacterPanel extends JPanel {
         if (y + height > heightInCharacters)
             throw new IllegalArgumentException("y + height " + (y + height) + " must be less than " + (heightInCharacters + 1) + "." );
 
+        if (foreground == null) foreground = defaultForegroundColor;
+        if (background == null) background = defaultBackgroundColor;
+
+        // Everything's already been checked so fill the cells directly instead of checking each one again in write.
         for (int xo = x; xo < x + width; xo++) {
             for (int yo = y; yo < y + height; yo++) {
-                write(character, xo, yo, foreground, background);
+                chars[xo][yo] = character;
+                foregroundColors[xo][yo] = foreground;
+                backgroundColors[xo][yo] = background;
             }
         }
+        cursorX = x + width;
+        cursorY = y + height - 1;
         return this;
     }
 
@@ -442,8 +635,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         return write(character, cursorX, cursorY, defaultForegroundColor, defaultBackgroundColor);
     }
@@ -456,8 +649,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character, Color foreground) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         return write(character, cursorX, cursorY, foreground, defaultBackgroundColor);
     }
@@ -471,8 +664,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character, Color foreground, Color background) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         return write(character, cursorX, cursorY, foreground, background);
     }
@@ -486,8 +679,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character, int x, int y) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -508,8 +701,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character, int x, int y, Color foreground) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -531,8 +724,8 @@ public class CharacterPanel extends JPanel {
      * @return this for convenient chaining of method calls
      */
     public CharacterPanel write(char character, int x, int y, Color foreground, Color background) {
-        if (character < 0 || !glyphMap.containsKey(character))
-            throw new IllegalArgumentException("character " + character + " must be in the glyphMap: " + glyphMap);
+        if (!glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
 
         if (x < 0 || x >= widthInCharacters)
             throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
@@ -0,0 +1,78 @@
+package characterPanel;
+
+import java.awt.Color;
+
+/**
+ * A copy of everything on a Renderer at one moment. It can't be changed once it's made, so one thread can draw a frame
+ * and hand it to another to show without either of them waiting on the other.
+ */
+public final class FrameSnapshot {
+    private final int width;
+    private final int height;
+    private final char[] chars;
+    private final Color[] foregroundColors;
+    private final Color[] backgroundColors;
+
+    public FrameSnapshot(Renderer renderer) {
+        this.width = renderer.getWidthInCharacters();
+        this.height = renderer.getHeightInCharacters();
+        this.chars = new char[width * height];
+        this.foregroundColors = new Color[width * height];
+        this.backgroundColors = new Color[width * height];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                chars[i] = renderer.getCharAt(x, y);
+                foregroundColors[i] = renderer.getForegroundColorAt(x, y);
+                backgroundColors[i] = renderer.getBackgroundColorAt(x, y);
+            }
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Write the frame onto another renderer, as much of it as fits.
+     *
+     * @param renderer
+     */
+    public void drawOn(Renderer renderer) {
+        drawOn(renderer, null);
+    }
+
+    /**
+     * Write the frame onto a renderer that's already showing the previous frame. Only the cells that are different
+     * get written, which from one turn to the next is usually just a handful, so the renderer has the same little bit
+     * of work to do as when the game wrote to it directly. The colors are compared by reference; two equal colors that
+     * aren't the same object just get written again, which does no harm.
+     *
+     * @param renderer
+     * @param previous what the renderer is showing now, or null to write every cell
+     */
+    public void drawOn(Renderer renderer, FrameSnapshot previous) {
+        int w = Math.min(width, renderer.getWidthInCharacters());
+        int h = Math.min(height, renderer.getHeightInCharacters());
+        if (previous != null && (previous.width != width || previous.height != height))
+            previous = null;
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * width + x;
+                if (previous != null
+                        && previous.chars[i] == chars[i]
+                        && previous.foregroundColors[i] == foregroundColors[i]
+                        && previous.backgroundColors[i] == backgroundColors[i])
+                    continue;
+
+                renderer.write(chars[i], x, y, foregroundColors[i], backgroundColors[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package characterPanel;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+
+/**
+ * The glyphs used to live in a HashMap<Character, BufferedImage>, which meant boxing every character, hashing it, and
+ * walking a bucket every time we checked or painted a cell. This is the glyphArray that was commented out in
+ * CharacterPanel, except split into pages of 256 characters so we don't need 65536 slots up front when the game only
+ * uses a couple hundred of them. Looking up a glyph is two array reads.
+ *
+ * Anything that isn't in the table yet gets drawn from the font the first time it's asked for, as long as the font
+ * can actually display it. So a screen can write any character it likes without someone having to remember to add it
+ * to the table first.
+ *
+ * The game loop checks characters as it draws a frame while Swing paints the last one, so both threads fill in the
+ * table as they go. Every method is synchronized; nobody else is ever waiting long since a lookup is just the two
+ * array reads.
+ */
+public class GlyphTable {
+    public static final int SIZE = 0x10000;
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final byte UNCHECKED = 0;
+    private static final byte DISPLAYABLE = 1;
+    private static final byte NOT_DISPLAYABLE = 2;
+
+    private BufferedImage[][] pages;
+    private byte[] displayable;
+
+    private String fontName;
+    private int fontSize;
+    private Font font;
+
+    public GlyphTable(String fontName, int fontSize) {
+        this.fontName = fontName;
+        this.fontSize = fontSize;
+        this.font = new Font(fontName, Font.PLAIN, fontSize);
+        this.pages = new BufferedImage[SIZE / PAGE_SIZE][];
+        this.displayable = new byte[SIZE];
+    }
+
+    public synchronized void put(int codePoint, BufferedImage glyph) {
+        if (codePoint < 0 || codePoint >= SIZE)
+            throw new IllegalArgumentException("codePoint " + codePoint + " must be within range [0," + SIZE + ").");
+
+        BufferedImage[] page = pages[codePoint >>> PAGE_BITS];
+        if (page == null) {
+            page = new BufferedImage[PAGE_SIZE];
+            pages[codePoint >>> PAGE_BITS] = page;
+        }
+        page[codePoint & PAGE_MASK] = glyph;
+    }
+
+    /**
+     * Can we show this character, either because we already have a glyph for it or because the font can draw one?
+     *
+     * @param codePoint
+     * @return
+     */
+    public synchronized boolean has(int codePoint) {
+        if (codePoint < 0 || codePoint >= SIZE)
+            return false;
+
+        BufferedImage[] page = pages[codePoint >>> PAGE_BITS];
+        if (page != null && page[codePoint & PAGE_MASK] != null)
+            return true;
+
+        if (displayable[codePoint] == UNCHECKED)
+            displayable[codePoint] = font.canDisplay(codePoint) ? DISPLAYABLE : NOT_DISPLAYABLE;
+
+        return displayable[codePoint] == DISPLAYABLE;
+    }
+
+    /**
+     * The glyph for this character, drawing it from the font if we haven't needed it before. Null if it can't be shown.
+     *
+     * @param codePoint
+     * @return
+     */
+    public synchronized BufferedImage glyph(int codePoint) {
+        if (codePoint < 0 || codePoint >= SIZE)
+            return null;
+
+        BufferedImage[] page = pages[codePoint >>> PAGE_BITS];
+        if (page != null) {
+            BufferedImage glyph = page[codePoint & PAGE_MASK];
+            if (glyph != null)
+                return glyph;
+        }
+
+        if (!has(codePoint))
+            return null;
+
+        BufferedImage glyph = CharacterData.createFontGlyph(codePoint, fontName, fontSize, 0, false);
+        put(codePoint, glyph);
+        return glyph;
+    }
+}
@@ -0,0 +1,183 @@
+package characterPanel;
+
+import java.awt.Color;
+
+/**
+ * A Renderer that doesn't draw anything, it just remembers what's in each cell. That's all you need to run the screens
+ * without a display: benchmarks can time displayOutput on its own, and tests can draw a screen and compare the text
+ * with what they expect (see toString).
+ *
+ * The cells are kept in flat arrays, row by row.
+ *
+ * Give it a GlyphTable and it turns away characters that can't be shown, just like CharacterPanel does. The game loop
+ * draws into one of these, so a bad character is caught right where it was written instead of later on Swing's thread
+ * when the frame gets shown.
+ */
+public class HeadlessRenderer implements Renderer {
+    protected int widthInCharacters;
+    protected int heightInCharacters;
+    protected char[] chars;
+    protected Color[] foregroundColors;
+    protected Color[] backgroundColors;
+
+    private int cursorX;
+    private int cursorY;
+    private Color defaultForegroundColor;
+    private Color defaultBackgroundColor;
+    private GlyphTable glyphs;
+
+    public HeadlessRenderer(int width, int height) {
+        this(width, height, null);
+    }
+
+    public HeadlessRenderer(int width, int height, GlyphTable glyphs) {
+        if (width < 1)
+            throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+        if (height < 1)
+            throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+        this.widthInCharacters = width;
+        this.heightInCharacters = height;
+        this.chars = new char[width * height];
+        this.foregroundColors = new Color[width * height];
+        this.backgroundColors = new Color[width * height];
+        this.defaultForegroundColor = CharacterPanel.white;
+        this.defaultBackgroundColor = CharacterPanel.black;
+        this.glyphs = glyphs;
+
+        clear();
+    }
+
+    public int getWidthInCharacters() {
+        return widthInCharacters;
+    }
+
+    public int getHeightInCharacters() {
+        return heightInCharacters;
+    }
+
+    public int getCursorX() {
+        return cursorX;
+    }
+
+    public int getCursorY() {
+        return cursorY;
+    }
+
+    public Color getDefaultForegroundColor() {
+        return defaultForegroundColor;
+    }
+
+    public void setDefaultForegroundColor(Color defaultForegroundColor) {
+        if (defaultForegroundColor == null)
+            throw new NullPointerException("defaultForegroundColor must not be null.");
+
+        this.defaultForegroundColor = defaultForegroundColor;
+    }
+
+    public Color getDefaultBackgroundColor() {
+        return defaultBackgroundColor;
+    }
+
+    public void setDefaultBackgroundColor(Color defaultBackgroundColor) {
+        if (defaultBackgroundColor == null)
+            throw new NullPointerException("defaultBackgroundColor must not be null.");
+
+        this.defaultBackgroundColor = defaultBackgroundColor;
+    }
+
+    public char getCharAt(int x, int y) {
+        return chars[y * widthInCharacters + x];
+    }
+
+    public Color getForegroundColorAt(int x, int y) {
+        return foregroundColors[y * widthInCharacters + x];
+    }
+
+    public Color getBackgroundColorAt(int x, int y) {
+        return backgroundColors[y * widthInCharacters + x];
+    }
+
+    public HeadlessRenderer write(char character, int x, int y, Color foreground, Color background) {
+        if (glyphs != null && !glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
+
+        if (x < 0 || x >= widthInCharacters)
+            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
+
+        if (y < 0 || y >= heightInCharacters)
+            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
+
+        int i = y * widthInCharacters + x;
+        chars[i] = character;
+        foregroundColors[i] = foreground == null ? defaultForegroundColor : foreground;
+        backgroundColors[i] = background == null ? defaultBackgroundColor : background;
+        cursorX = x + 1;
+        cursorY = y;
+        return this;
+    }
+
+    public HeadlessRenderer clear(char character, int x, int y, int width, int height, Color foreground, Color background) {
+        if (glyphs != null && !glyphs.has(character))
+            throw new IllegalArgumentException("character " + character + " (" + (int)character + ") must have a glyph.");
+
+        if (x < 0 || x >= widthInCharacters)
+            throw new IllegalArgumentException("x " + x + " must be within range [0," + widthInCharacters + ")" );
+
+        if (y < 0 || y >= heightInCharacters)
+            throw new IllegalArgumentException("y " + y + " must be within range [0," + heightInCharacters + ")" );
+
+        if (width < 1)
+            throw new IllegalArgumentException("width " + width + " must be greater than 0." );
+
+        if (height < 1)
+            throw new IllegalArgumentException("height " + height + " must be greater than 0." );
+
+        if (x + width > widthInCharacters)
+            throw new IllegalArgumentException("x + width " + (x + width) + " must be less than " + (widthInCharacters + 1) + "." );
+
+        if (y + height > heightInCharacters)
+            throw new IllegalArgumentException("y + height " + (y + height) + " must be less than " + (heightInCharacters + 1) + "." );
+
+        if (foreground == null) foreground = defaultForegroundColor;
+        if (background == null) background = defaultBackgroundColor;
+
+        for (int yo = y; yo < y + height; yo++) {
+            for (int xo = x; xo < x + width; xo++) {
+                int i = yo * widthInCharacters + xo;
+                chars[i] = character;
+                foregroundColors[i] = foreground;
+                backgroundColors[i] = background;
+            }
+        }
+        cursorX = x + width;
+        cursorY = y + height - 1;
+        return this;
+    }
+
+    /**
+     * The characters in one row, without any colors.
+     *
+     * @param y
+     * @return
+     */
+    public String row(int y) {
+        return new String(chars, y * widthInCharacters, widthInCharacters);
+    }
+
+    /**
+     * All the characters on the screen, one line per row.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder((widthInCharacters + 1) * heightInCharacters);
+        for (int y = 0; y < heightInCharacters; y++) {
+            text.append(chars, y * widthInCharacters, widthInCharacters);
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package characterPanel;
+
+import game.Tile;
+
+import java.awt.Color;
+
+/**
+ * Something screens can draw characters on: a grid of cells, each with a character, a foreground color, and a
+ * background color. CharacterPanel draws them in a Swing window, HeadlessRenderer just keeps them in memory, and
+ * AnsiRenderer sends them to a text terminal.
+ *
+ * An implementation only has to provide the two methods that actually change cells, write(char, x, y, fg, bg) and
+ * clear(char, x, y, width, height, fg, bg), and the rest of the overloads come for free.
+ */
+public interface Renderer {
+
+    int getWidthInCharacters();
+
+    int getHeightInCharacters();
+
+    int getCursorX();
+
+    int getCursorY();
+
+    Color getDefaultForegroundColor();
+
+    Color getDefaultBackgroundColor();
+
+    char getCharAt(int x, int y);
+
+    Color getForegroundColorAt(int x, int y);
+
+    Color getBackgroundColorAt(int x, int y);
+
+    /**
+     * Write a character to the specified position with the specified foreground and background colors.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param character  the character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    Renderer write(char character, int x, int y, Color foreground, Color background);
+
+    /**
+     * Clear the section of the screen with the specified character and whatever the specified foreground and background colors are.
+     * @param character  the character to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param width      the width of the section to clear
+     * @param height     the height of the section to clear
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    Renderer clear(char character, int x, int y, int width, int height, Color foreground, Color background);
+
+    default Renderer clear() {
+        return clear(Tile.UNKNOWN.glyph(), 0, 0, getWidthInCharacters(), getHeightInCharacters(), getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer clear(char character) {
+        return clear(character, 0, 0, getWidthInCharacters(), getHeightInCharacters(), getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer clear(char character, Color foreground, Color background) {
+        return clear(character, 0, 0, getWidthInCharacters(), getHeightInCharacters(), foreground, background);
+    }
+
+    default Renderer clear(char character, int x, int y, int width, int height) {
+        return clear(character, x, y, width, height, getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer write(char character) {
+        return write(character, getCursorX(), getCursorY(), getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer write(char character, Color foreground) {
+        return write(character, getCursorX(), getCursorY(), foreground, getDefaultBackgroundColor());
+    }
+
+    default Renderer write(char character, Color foreground, Color background) {
+        return write(character, getCursorX(), getCursorY(), foreground, background);
+    }
+
+    default Renderer write(char character, int x, int y) {
+        return write(character, x, y, getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer write(char character, int x, int y, Color foreground) {
+        return write(character, x, y, foreground, getDefaultBackgroundColor());
+    }
+
+    default Renderer write(String string) {
+        return write(string, getCursorX(), getCursorY(), getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer write(String string, Color foreground) {
+        return write(string, getCursorX(), getCursorY(), foreground, getDefaultBackgroundColor());
+    }
+
+    default Renderer write(String string, Color foreground, Color background) {
+        return write(string, getCursorX(), getCursorY(), foreground, background);
+    }
+
+    default Renderer write(String string, int x, int y) {
+        return write(string, x, y, getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer write(String string, int x, int y, Color foreground) {
+        return write(string, x, y, foreground, getDefaultBackgroundColor());
+    }
+
+    /**
+     * Write a string to the specified position with the specified foreground and background colors.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param text       the string to write
+     * @param x          the distance from the left to begin writing from
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    default Renderer write(String text, int x, int y, Color foreground, Color background) {
+        if (text == null)
+            throw new NullPointerException("string must not be null." );
+
+        if (x + text.length() >= getWidthInCharacters())
+            throw new IllegalArgumentException("x + string.length() " + (x + text.length()) + " must be less than " + getWidthInCharacters() + "." );
+
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i), x + i, y, foreground, background);
+        }
+        return this;
+    }
+
+    default Renderer writeCenter(String string, int y) {
+        return writeCenter(string, y, getDefaultForegroundColor(), getDefaultBackgroundColor());
+    }
+
+    default Renderer writeCenter(String string, int y, Color foreground) {
+        return writeCenter(string, y, foreground, getDefaultBackgroundColor());
+    }
+
+    /**
+     * Write a string to the center of the panel at the specified y position with the specified foreground and background colors.
+     * This updates the cursor's position but not the default foreground or background colors.
+     * @param string     the string to write
+     * @param y          the distance from the top to begin writing from
+     * @param foreground the foreground color or null to use the default
+     * @param background the background color or null to use the default
+     * @return this for convenient chaining of method calls
+     */
+    default Renderer writeCenter(String string, int y, Color foreground, Color background) {
+        if (string == null)
+            throw new NullPointerException("string must not be null." );
+
+        if (string.length() >= getWidthInCharacters())
+            throw new IllegalArgumentException("string.length() " + string.length() + " must be less than " + getWidthInCharacters() + "." );
+
+        return write(string, (getWidthInCharacters() - string.length()) / 2, y, foreground, background);
+    }
+}
@@ -0,0 +1,185 @@
+package characterPanel;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The glyphs are stored white on black and CharacterPanel colors them in as it paints, which used to mean a new lookup
+ * table and a new image for every cell that changed. The map is mostly the same few glyphs in the same few colors, so
+ * we keep the colored images around and reuse them.
+ *
+ * Each colored glyph is found by a key packing the character and both colors into one long, 16 bits for the character
+ * and 24 bits for each color. The cache holds up to a fixed number of them and when it's full the one that was used the
+ * longest time ago gets thrown out (least recently used, or LRU). The keys live in a plain long array hash table and
+ * the use order is a linked list made of int arrays, so looking up a glyph that's already there doesn't create any
+ * objects at all.
+ *
+ * https://en.wikipedia.org/wiki/Cache_replacement_policies#Least_recently_used_(LRU)
+ */
+public class TintedGlyphCache {
+    private static final int NONE = -1;
+
+    private int capacity;
+    private int size;
+
+    // The entries, with links to the next older and next newer entry.
+    private long[] keys;
+    private BufferedImage[] images;
+    private int[] older;
+    private int[] newer;
+    private int oldest = NONE;
+    private int newest = NONE;
+
+    // Open addressing hash table of entry numbers, at most half full.
+    private int[] table;
+    private int mask;
+
+    private long hits;
+    private long misses;
+
+    public TintedGlyphCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity + " must be greater than 0.");
+
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.images = new BufferedImage[capacity];
+        this.older = new int[capacity];
+        this.newer = new int[capacity];
+        this.table = new int[Integer.highestOneBit(capacity) * 4];
+        this.mask = table.length - 1;
+        Arrays.fill(table, NONE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public static long key(int character, Color foreground, Color background) {
+        return ((long)(character & 0xFFFF) << 48)
+                | ((long)(foreground.getRGB() & 0xFFFFFF) << 24)
+                | (background.getRGB() & 0xFFFFFF);
+    }
+
+    /**
+     * The colored glyph for the key, or null if it isn't cached.
+     *
+     * @param key
+     * @return
+     */
+    public BufferedImage get(long key) {
+        int slot = find(key);
+        if (table[slot] == NONE) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        int entry = table[slot];
+        unlink(entry);
+        linkNewest(entry);
+        return images[entry];
+    }
+
+    public void put(long key, BufferedImage image) {
+        int slot = find(key);
+        if (table[slot] != NONE) {
+            int entry = table[slot];
+            images[entry] = image;
+            unlink(entry);
+            linkNewest(entry);
+            return;
+        }
+
+        int entry;
+        if (size < capacity) {
+            entry = size++;
+        } else {
+            entry = oldest;
+            unlink(entry);
+            removeSlot(find(keys[entry]));
+            slot = find(key);
+        }
+
+        keys[entry] = key;
+        images[entry] = image;
+        table[slot] = entry;
+        linkNewest(entry);
+    }
+
+    public void clear() {
+        Arrays.fill(table, NONE);
+        Arrays.fill(images, null);
+        size = 0;
+        oldest = NONE;
+        newest = NONE;
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * The slot holding the key, or the empty slot where it would go.
+     */
+    private int find(long key) {
+        int slot = home(key);
+        while (table[slot] != NONE && keys[table[slot]] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Empty a slot and shift anything after it that belongs earlier back into the gap, so lookups never stop short at
+     * a hole.
+     */
+    private void removeSlot(int hole) {
+        table[hole] = NONE;
+
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table[slot] == NONE)
+                return;
+
+            int home = home(keys[table[slot]]);
+            boolean canMove = hole <= slot
+                    ? home <= hole || home > slot
+                    : home <= hole && home > slot;
+
+            if (canMove) {
+                table[hole] = table[slot];
+                table[slot] = NONE;
+                hole = slot;
+            }
+        }
+    }
+
+    private void unlink(int entry) {
+        if (older[entry] != NONE) newer[older[entry]] = newer[entry];
+        else oldest = newer[entry];
+
+        if (newer[entry] != NONE) older[newer[entry]] = older[entry];
+        else newest = older[entry];
+    }
+
+    private void linkNewest(int entry) {
+        older[entry] = newest;
+        newer[entry] = NONE;
+
+        if (newest != NONE) newer[newest] = entry;
+        else oldest = entry;
+
+        newest = entry;
+    }
+}
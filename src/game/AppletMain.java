@@ -66,6 +66,6 @@ public class AppletMain extends Applet implements KeyListener {
     public void repaint(){
         terminal.clear();
         screen.displayOutput(terminal);
-        super.repaint();
+        terminal.repaintChanged();
     }
 }
\ No newline at end of file
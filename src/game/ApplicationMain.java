@@ -1,6 +1,8 @@
 package game;
 
 import characterPanel.CharacterPanel;
+import characterPanel.FrameSnapshot;
+import characterPanel.HeadlessRenderer;
 import game.screens.Screen;
 import game.screens.StartScreen;
 
@@ -32,6 +34,20 @@ public class ApplicationMain extends JFrame implements WindowListener, KeyListen
     private CharacterPanel terminal;
     private Screen screen;
 
+    /**
+     * Taking a turn (all the monsters, their path finding, the field of view) used to happen right in keyPressed on
+     * Swing's event dispatch thread, so a slow turn froze the window until it was done. Now Swing just puts key presses
+     * in a queue and a separate game loop thread takes them out, lets the screen respond, and draws the screen into an
+     * off screen buffer. When it's done it hands a snapshot of the buffer back to Swing to show.
+     *
+     * The screens and the world are only ever touched by the game loop thread and the CharacterPanel is only ever
+     * touched by Swing's thread; the snapshots are the only thing they share and those never change.
+     */
+    private KeyQueue keys = new KeyQueue(8);
+    private HeadlessRenderer buffer;
+    private volatile FrameSnapshot latestFrame;
+    private FrameSnapshot shownFrame;
+
     /**
      * The ApplicationMain constructor has all the set up code. So far that's just creating an CharacterPanel to display
      * some text and making sure the window is the correct size. The CharacterPanel defaults to 80 by 24 characters but
@@ -41,6 +57,10 @@ public class ApplicationMain extends JFrame implements WindowListener, KeyListen
      * screen. It's delegating input and output to other things, exactly what ApplicationMain is for.
      */
     public ApplicationMain(){
+        this(CharacterPanel.Backend.SWING);
+    }
+
+    public ApplicationMain(CharacterPanel.Backend backend){
         super("Arcane Lôr");
         //setTitle();
 
@@ -63,7 +83,7 @@ public class ApplicationMain extends JFrame implements WindowListener, KeyListen
 
         // Add the ASCII Panel
         try {
-            terminal = new CharacterPanel(Screen.SCREEN_WIDTH+1, SCREEN_HEIGHT+1); // default is 80 x 24
+            terminal = new CharacterPanel(Screen.SCREEN_WIDTH+1, SCREEN_HEIGHT+1, backend); // default is 80 x 24
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
         }
@@ -76,17 +96,78 @@ public class ApplicationMain extends JFrame implements WindowListener, KeyListen
          */
         pack();
         screen = new StartScreen();
+        buffer = new HeadlessRenderer(terminal.getWidthInCharacters(), terminal.getHeightInCharacters(), CharacterPanel.glyphs);
         addKeyListener(this);
+        startGameLoop();
+    }
+
+    private void startGameLoop() {
+        Thread loop = new Thread(new Runnable() {
+            public void run() {
+                gameLoop();
+            }
+        }, "game loop");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    private void gameLoop() {
+        publishFrame();
+
+        while (true) {
+            KeyEvent key;
+            try {
+                key = keys.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // A bug in one screen shouldn't take the whole game loop down with it (and leave the window frozen), so we
+            // print what went wrong and carry on with the screen we had.
+            try {
+                screen = screen.respondToUserInput(key);
+            } catch (UnsupportedEncodingException e1) {
+                e1.printStackTrace();
+            } catch (RuntimeException e2) {
+                e2.printStackTrace();
+            }
+
+            try {
+                publishFrame();
+            } catch (RuntimeException e3) {
+                e3.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Draw the current screen off screen and hand Swing a snapshot of it.
+     */
+    private void publishFrame() {
+        buffer.clear();
+        screen.displayOutput(buffer);
+        latestFrame = new FrameSnapshot(buffer);
         repaint();
     }
 
     /**
      * The main method just creates an instance of our window and show's it, making sure that the application exits
      * when the window is closed. Simple as can be.
+     *
+     * Run it with --accelerated to draw with the hardware accelerated backend instead of plain Swing, and with
+     * --perf-log <file> to write performance numbers to a file every few seconds (see Perf).
      * @param args
      */
     public static void main(String[] args) {
-        ApplicationMain app = new ApplicationMain();
+        Perf.logIfAsked(args);
+
+        CharacterPanel.Backend backend = CharacterPanel.Backend.SWING;
+        for (String arg : args) {
+            if (arg.equals("--accelerated"))
+                backend = CharacterPanel.Backend.ACCELERATED;
+        }
+
+        ApplicationMain app = new ApplicationMain(backend);
 
         Toolkit theKit = app.getToolkit();
         Dimension wndSize = theKit.getScreenSize();
@@ -116,26 +197,39 @@ public class ApplicationMain extends JFrame implements WindowListener, KeyListen
         }
     }
 
+    /**
+     * Show the latest frame from the game loop and let the terminal repaint whatever cells actually changed. This can
+     * be called from any thread; the work always happens on Swing's. If the game loop publishes a few frames before
+     * Swing gets around to it, only the newest one is shown.
+     */
     @Override
     public void repaint(){
-        terminal.clear();
-        screen.displayOutput(terminal);
-        super.repaint();
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    repaint();
+                }
+            });
+            return;
+        }
+
+        FrameSnapshot frame = latestFrame;
+        if (terminal == null || frame == null || frame == shownFrame)
+            return;
+
+        frame.drawOn(terminal, shownFrame);
+        terminal.repaintChanged();
+        shownFrame = frame;
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        try {
-            screen = screen.respondToUserInput(e);
-        } catch (UnsupportedEncodingException e1) {
-            e1.printStackTrace();
-        }
-        repaint();
+        keys.offer(e);
     }
 
     @Override
     public void keyReleased(KeyEvent e) {
-        //
+        keys.released(e);
     }
 
     @Override
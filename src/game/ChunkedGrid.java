@@ -0,0 +1,148 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One thing (an item, a creature) per location, for the whole world, without an array entry for every location. Most
+ * of a big world is empty so the locations are grouped into the same 64 by 64 chunks as ChunkedTiles and a chunk only
+ * gets an array once something is put in it. When the last thing in a chunk is taken out the array goes away again.
+ *
+ * Unlike the tiles, these always stay in memory. There are only as many of them as there are things in the world, not
+ * locations, and saving them means saving creatures and items, which is a job for something else.
+ */
+public class ChunkedGrid<T> {
+    private static final int CHUNK_BITS = ChunkedTiles.CHUNK_BITS;
+    private static final int CHUNK_MASK = ChunkedTiles.CHUNK_SIZE - 1;
+
+    private int chunksAcross;
+    private int chunksDown;
+
+    private Object[][] chunks;
+    private int[] counts;
+
+    public ChunkedGrid(int width, int height, int depth) {
+        this.chunksAcross = (width + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunksDown = (height + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunks = new Object[chunksAcross * chunksDown * depth][];
+        this.counts = new int[chunks.length];
+    }
+
+    private int chunk(int x, int y, int z) {
+        return (z * chunksDown + (y >> CHUNK_BITS)) * chunksAcross + (x >> CHUNK_BITS);
+    }
+
+    private static int slot(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int x, int y, int z) {
+        Object[] chunk = chunks[chunk(x, y, z)];
+        return chunk == null ? null : (T)chunk[slot(x, y)];
+    }
+
+    /**
+     * Put something at a location, or take whatever's there away with null.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param thing
+     */
+    public void set(int x, int y, int z, T thing) {
+        int number = chunk(x, y, z);
+        Object[] chunk = chunks[number];
+
+        if (chunk == null) {
+            if (thing == null)
+                return;
+            chunk = new Object[1 << (CHUNK_BITS * 2)];
+            chunks[number] = chunk;
+        }
+
+        int slot = slot(x, y);
+        if (chunk[slot] == null && thing != null)
+            counts[number]++;
+        else if (chunk[slot] != null && thing == null)
+            counts[number]--;
+        chunk[slot] = thing;
+
+        if (counts[number] == 0)
+            chunks[number] = null;
+    }
+
+    /**
+     * Take a thing away from wherever it is, looking only in chunks that have anything in them.
+     *
+     * @param thing
+     * @return where it was, or null if it wasn't anywhere
+     */
+    public Point remove(T thing) {
+        for (int number = 0; number < chunks.length; number++) {
+            Object[] chunk = chunks[number];
+            if (chunk == null)
+                continue;
+
+            for (int slot = 0; slot < chunk.length; slot++) {
+                if (chunk[slot] == thing) {
+                    chunk[slot] = null;
+                    if (--counts[number] == 0)
+                        chunks[number] = null;
+
+                    int z = number / (chunksAcross * chunksDown);
+                    int rest = number % (chunksAcross * chunksDown);
+                    return new Point(((rest % chunksAcross) << CHUNK_BITS) + (slot & CHUNK_MASK),
+                            ((rest / chunksAcross) << CHUNK_BITS) + (slot >> CHUNK_BITS), z);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Where everything on one level is.
+     *
+     * @param z
+     * @return
+     */
+    public List<Point> locations(int z) {
+        List<Point> locations = new ArrayList<Point>();
+        for (int number = z * chunksAcross * chunksDown; number < (z + 1) * chunksAcross * chunksDown; number++) {
+            Object[] chunk = chunks[number];
+            if (chunk == null)
+                continue;
+
+            int rest = number % (chunksAcross * chunksDown);
+            int left = (rest % chunksAcross) << CHUNK_BITS;
+            int top = (rest / chunksAcross) << CHUNK_BITS;
+            for (int slot = 0; slot < chunk.length; slot++) {
+                if (chunk[slot] != null)
+                    locations.add(new Point(left + (slot & CHUNK_MASK), top + (slot >> CHUNK_BITS), z));
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Everything on one level.
+     *
+     * @param z
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> all(int z) {
+        List<T> things = new ArrayList<T>();
+        for (int number = z * chunksAcross * chunksDown; number < (z + 1) * chunksAcross * chunksDown; number++) {
+            Object[] chunk = chunks[number];
+            if (chunk == null)
+                continue;
+
+            for (Object thing : chunk) {
+                if (thing != null)
+                    things.add((T)thing);
+            }
+        }
+        return things;
+    }
+}
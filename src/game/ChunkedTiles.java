@@ -0,0 +1,308 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Tiles for a world that might be too big to keep in memory all at once. Instead of one byte array for the whole
+ * world, each level is cut up into chunks of 64 by 64 tiles. Only the chunks that have been used lately stay in memory;
+ * when there are more than maxResident of them the one that's gone unused the longest is written out to a scratch file
+ * and dropped, and read back in the next time somebody asks for one of its tiles. So how big a world can get depends
+ * on the disk, not the heap.
+ *
+ * A chunk that's never been used doesn't exist anywhere yet. The first time it's needed it's filled in by the
+ * Generator, which for the world's memory of what it's seen (see FieldOfView) is just "unknown" everywhere.
+ *
+ * Reading a tile is the hot path, it happens for every step of every path search and every ray of the field of view.
+ * Those nearly always stay in the chunk they were just in, so the last chunk used is remembered and looking in it
+ * again is just a little arithmetic.
+ *
+ * This isn't safe to use from more than one thread at a time, even to read, since reading can load and evict chunks.
+ */
+public class ChunkedTiles {
+    public static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE;
+
+    private static final byte NEW = 0;
+    private static final byte RESIDENT = 1;
+    private static final byte ON_DISK = 2;
+
+    /**
+     * Fills in a chunk the first time it's needed.
+     */
+    public interface Generator {
+        /**
+         * @param left the world x of the chunk's first column
+         * @param top the world y of the chunk's first row
+         * @param z
+         * @param tiles CHUNK_SIZE rows of CHUNK_SIZE tile ordinals to fill in
+         */
+        void generate(int left, int top, int z, byte[] tiles);
+    }
+
+    /**
+     * A Generator that fills new chunks with one tile.
+     *
+     * @param tile
+     * @return
+     */
+    public static Generator filledWith(final Tile tile) {
+        return new Generator() {
+            public void generate(int left, int top, int z, byte[] tiles) {
+                Arrays.fill(tiles, (byte)tile.ordinal());
+            }
+        };
+    }
+
+    private static class Chunk {
+        int number;
+        byte[] tiles = new byte[CHUNK_BYTES];
+        boolean dirty;
+        long lastUsed;
+    }
+
+    private int width;
+    private int height;
+    private int depth;
+    private int chunksAcross;
+    private int chunksDown;
+
+    private Generator generator;
+    private int maxResident;
+
+    private Chunk[] chunks;
+    private byte[] states;
+    private ArrayList<Chunk> resident = new ArrayList<Chunk>();
+    private long clock;
+
+    private int lastNumber = -1;
+    private Chunk lastChunk;
+
+    private File swapFile;
+    private FileChannel swap;
+
+    public ChunkedTiles(int width, int height, int depth, Generator generator, int maxResident) {
+        if (maxResident < 1)
+            throw new IllegalArgumentException("maxResident " + maxResident + " must be greater than 0.");
+
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.chunksAcross = (width + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunksDown = (height + CHUNK_MASK) >> CHUNK_BITS;
+        this.generator = generator;
+        this.maxResident = maxResident;
+        this.chunks = new Chunk[chunksAcross * chunksDown * depth];
+        this.states = new byte[chunks.length];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * How many chunks are in memory right now.
+     */
+    public int residentChunks() {
+        return resident.size();
+    }
+
+    /**
+     * How many chunks are out in the scratch file and not in memory right now.
+     */
+    public int chunksOnDisk() {
+        int count = 0;
+        for (byte state : states) {
+            if (state == ON_DISK)
+                count++;
+        }
+        return count;
+    }
+
+    public byte get(int x, int y, int z) {
+        Chunk chunk = chunk(x, y, z);
+        return chunk.tiles[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)];
+    }
+
+    public void set(int x, int y, int z, byte tile) {
+        Chunk chunk = chunk(x, y, z);
+        chunk.tiles[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)] = tile;
+        chunk.dirty = true;
+    }
+
+    /**
+     * Copy a whole level in, width * height tile ordinals one row after another, starting at offset. This is how a
+     * WorldBuilder hands over what it built without going through set one tile at a time.
+     *
+     * @param z
+     * @param level
+     * @param offset
+     */
+    public void setLevel(int z, byte[] level, int offset) {
+        for (int top = 0; top < height; top += CHUNK_SIZE) {
+            for (int left = 0; left < width; left += CHUNK_SIZE) {
+                Chunk chunk = chunk(left, top, z);
+                int columns = Math.min(CHUNK_SIZE, width - left);
+                int rows = Math.min(CHUNK_SIZE, height - top);
+                for (int row = 0; row < rows; row++)
+                    System.arraycopy(level, offset + (top + row) * width + left, chunk.tiles, row << CHUNK_BITS, columns);
+                chunk.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Copy a whole level out, the other way around from setLevel. Saving a game (see SaveGame) does this one level at
+     * a time.
+     *
+     * @param z
+     * @param level
+     * @param offset
+     */
+    public void getLevel(int z, byte[] level, int offset) {
+        for (int top = 0; top < height; top += CHUNK_SIZE) {
+            for (int left = 0; left < width; left += CHUNK_SIZE) {
+                Chunk chunk = chunk(left, top, z);
+                int columns = Math.min(CHUNK_SIZE, width - left);
+                int rows = Math.min(CHUNK_SIZE, height - top);
+                for (int row = 0; row < rows; row++)
+                    System.arraycopy(chunk.tiles, row << CHUNK_BITS, level, offset + (top + row) * width + left, columns);
+            }
+        }
+    }
+
+    /**
+     * Let go of the scratch file. The tiles that were only on disk are gone after this.
+     */
+    public void close() {
+        try {
+            if (swap != null)
+                swap.close();
+        } catch (IOException e) {
+            System.err.println("Couldn't close " + swapFile + ": " + e.getMessage());
+        }
+        if (swapFile != null)
+            swapFile.delete();
+        swap = null;
+        swapFile = null;
+    }
+
+    private Chunk chunk(int x, int y, int z) {
+        int number = (z * chunksDown + (y >> CHUNK_BITS)) * chunksAcross + (x >> CHUNK_BITS);
+        if (number == lastNumber)
+            return lastChunk;
+
+        Chunk chunk = chunks[number];
+        if (chunk == null)
+            chunk = load(number);
+
+        chunk.lastUsed = ++clock;
+        lastNumber = number;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private Chunk load(int number) {
+        if (resident.size() >= maxResident)
+            evictOldest();
+
+        Chunk chunk = new Chunk();
+        chunk.number = number;
+
+        if (states[number] == ON_DISK) {
+            read(chunk);
+        } else {
+            int z = number / (chunksAcross * chunksDown);
+            int rest = number % (chunksAcross * chunksDown);
+            generator.generate((rest % chunksAcross) << CHUNK_BITS, (rest / chunksAcross) << CHUNK_BITS, z, chunk.tiles);
+            chunk.dirty = true;
+        }
+
+        chunks[number] = chunk;
+        states[number] = RESIDENT;
+        resident.add(chunk);
+        return chunk;
+    }
+
+    /**
+     * Throw out whichever chunk has gone unused the longest, saving it first if it's changed since it was last saved.
+     * Looking through every resident chunk is slow compared to a tile lookup but it only happens when we load a chunk,
+     * which means reading or generating 4096 tiles anyway.
+     */
+    private void evictOldest() {
+        int oldest = 0;
+        for (int i = 1; i < resident.size(); i++) {
+            if (resident.get(i).lastUsed < resident.get(oldest).lastUsed)
+                oldest = i;
+        }
+
+        Chunk chunk = resident.get(oldest);
+        resident.set(oldest, resident.get(resident.size() - 1));
+        resident.remove(resident.size() - 1);
+
+        if (chunk.dirty)
+            write(chunk);
+
+        chunks[chunk.number] = null;
+        states[chunk.number] = ON_DISK;
+        if (lastChunk == chunk) {
+            lastNumber = -1;
+            lastChunk = null;
+        }
+    }
+
+    /**
+     * Every chunk has its own spot in the scratch file, chunk number * 4096 bytes in, so there's nothing to keep track
+     * of. The operating system only uses disk for the parts of the file that actually get written.
+     */
+    private void write(Chunk chunk) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk.tiles);
+            long position = (long)chunk.number * CHUNK_BYTES;
+            while (buffer.hasRemaining())
+                position += swap().write(buffer, position);
+            chunk.dirty = false;
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't save chunk " + chunk.number + " to " + swapFile + ".", e);
+        }
+    }
+
+    private void read(Chunk chunk) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk.tiles);
+            long position = (long)chunk.number * CHUNK_BYTES;
+            while (buffer.hasRemaining()) {
+                int read = swap().read(buffer, position);
+                if (read < 0)
+                    throw new IOException("The file ended early.");
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't load chunk " + chunk.number + " from " + swapFile + ".", e);
+        }
+    }
+
+    private FileChannel swap() throws IOException {
+        if (swap == null) {
+            swapFile = File.createTempFile("tbd-chunks", ".bin");
+            swapFile.deleteOnExit();
+            swap = new RandomAccessFile(swapFile, "rw").getChannel();
+        }
+        return swap;
+    }
+}
@@ -0,0 +1,136 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Every zombie and goblin that can see the player used to run its own A* search toward the exact same spot. A distance
+ * map (sometimes called a Dijkstra map) turns that around: we do one breadth first search outward from the target and
+ * write down how many steps each location is from it. Anything hunting the target just has to step to whichever
+ * neighbor has a smaller number than where it's standing. One search per turn instead of one per hunter.
+ *
+ * http://www.roguebasin.com/index.php?title=The_Incredible_Power_of_Dijkstra_Maps
+ *
+ * Creatures don't block the map, only walls do. That way the map only needs rebuilding when the target moves or the
+ * cave gets dug out, and a hunter that finds its way blocked by another creature can fall back on a real Path.
+ *
+ * The search stops after MAX_DISTANCE steps. Monsters only hunt what they can see so that's plenty, and it keeps the
+ * cost from growing with the size of the level.
+ */
+public class DistanceMap {
+    public static final int UNREACHED = -1;
+    public static final int MAX_DISTANCE = 100;
+
+    private int width;
+    private int height;
+
+    private int[] distances;
+    private int[] generations;
+    private int generation;
+    private int[] queue;
+
+    private int targetX;
+    private int targetY;
+    private int targetZ;
+    private int tileVersion;
+
+    public DistanceMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.distances = new int[width * height];
+        this.generations = new int[width * height];
+        this.queue = new int[width * height];
+        this.targetZ = -1;
+    }
+
+    /**
+     * Is this map still good for a target standing at x, y, z in a world whose tiles haven't changed since?
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param tileVersion
+     * @return
+     */
+    public boolean isFor(int x, int y, int z, int tileVersion) {
+        return generation > 0
+                && targetX == x && targetY == y && targetZ == z
+                && this.tileVersion == tileVersion;
+    }
+
+    /**
+     * Rebuild the map from the target outward. Like the PathFinder, locations are stamped with a generation number so
+     * we don't need to clear the distances first.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void update(World world, int x, int y, int z) {
+        targetX = x;
+        targetY = y;
+        targetZ = z;
+        tileVersion = world.tileVersion();
+
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        int head = 0;
+        int tail = 0;
+
+        int start = y * width + x;
+        distances[start] = 0;
+        generations[start] = generation;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int distance = distances[current] + 1;
+            if (distance > MAX_DISTANCE)
+                break;
+
+            int cx = current % width;
+            int cy = current / width;
+
+            for (int ox = -1; ox < 2; ox++){
+                for (int oy = -1; oy < 2; oy++){
+                    int nx = cx + ox;
+                    int ny = cy + oy;
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                        continue;
+
+                    int neighbor = ny * width + nx;
+                    if (generations[neighbor] == generation || !world.tile(nx, ny, z).isGround())
+                        continue;
+
+                    distances[neighbor] = distance;
+                    generations[neighbor] = generation;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * How many steps is it from x, y on the target's level to the target? UNREACHED if it's too far away, walled off, or
+     * not on the target's level at all.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public int distance(int x, int y, int z) {
+        if (z != targetZ || x < 0 || y < 0 || x >= width || y >= height)
+            return UNREACHED;
+
+        int index = y * width + x;
+        return generations[index] == generation ? distances[index] : UNREACHED;
+    }
+}
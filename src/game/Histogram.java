@@ -0,0 +1,140 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The last few hundred measurements of one thing, like how long World.update took or how many locations a path search
+ * looked at. Averages hide exactly the turns we care about (the one where every goblin on the level decided to go
+ * around the long way) so instead we keep the raw numbers and work out the median, the 99th percentile, and the worst
+ * one when somebody asks.
+ *
+ * It's rolling: once it's full each new measurement replaces the oldest one, so the numbers describe the last little
+ * while of play and not the whole session. Recording is just storing a long. Working out the percentiles copies and
+ * sorts the window, which is fine for something that happens a few times a second at most.
+ *
+ * The game loop records most things and Swing records the paints, so everything's synchronized.
+ */
+public class Histogram {
+
+    /**
+     * What the numbers mean, mostly so they can be shown sensibly.
+     */
+    public enum Unit {
+        NANOSECONDS, COUNT;
+
+        public String format(long value) {
+            if (this == COUNT)
+                return Long.toString(value);
+
+            if (value < 10000L)
+                return value + "ns";
+            if (value < 10000000L)
+                return value / 1000L + "us";
+            return value / 1000000L + "ms";
+        }
+    }
+
+    public static final int WINDOW = 512;
+
+    private String name;
+    public String name() {
+        return name;
+    }
+
+    private Unit unit;
+    public Unit unit() {
+        return unit;
+    }
+
+    private long[] values = new long[WINDOW];
+    private int size;
+    private int next;
+    private long total;
+
+    public Histogram(String name, Unit unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public synchronized void record(long value) {
+        values[next] = value;
+        next = (next + 1) % WINDOW;
+        if (size < WINDOW)
+            size++;
+        total++;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+        next = 0;
+        total = 0;
+    }
+
+    /**
+     * The numbers as they are right now.
+     *
+     * @return
+     */
+    public Snapshot snapshot() {
+        long[] sorted;
+        long count;
+        synchronized (this) {
+            sorted = Arrays.copyOf(values, size);
+            count = total;
+        }
+        Arrays.sort(sorted);
+        return new Snapshot(this, count, sorted);
+    }
+
+    public static class Snapshot {
+        private Histogram histogram;
+        private long count;
+        private long p50;
+        private long p99;
+        private long max;
+
+        private Snapshot(Histogram histogram, long count, long[] sorted) {
+            this.histogram = histogram;
+            this.count = count;
+            if (sorted.length > 0) {
+                this.p50 = sorted[percentileIndex(sorted.length, 50)];
+                this.p99 = sorted[percentileIndex(sorted.length, 99)];
+                this.max = sorted[sorted.length - 1];
+            }
+        }
+
+        private static int percentileIndex(int size, int percentile) {
+            return Math.min(size - 1, (size * percentile + 99) / 100 - 1);
+        }
+
+        public String name() {
+            return histogram.name();
+        }
+
+        /**
+         * How many measurements there have been in all, not just the ones still in the window.
+         */
+        public long count() {
+            return count;
+        }
+
+        public long p50() {
+            return p50;
+        }
+
+        public long p99() {
+            return p99;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            Unit unit = histogram.unit();
+            return String.format("%-18s %8d  p50 %7s  p99 %7s  max %7s", name(), count,
+                    unit.format(p50), unit.format(p99), unit.format(max));
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package game;
+
+import game.creatures.Creature;
+import game.creatures.FieldOfView;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Autosaving every turn. Saving the whole game (see SaveGame) every turn would be way too slow for a big world, and
+ * almost none of it changes from one turn to the next anyway. So the Journal starts with one full save, the snapshot,
+ * and after that only writes down what changed each turn, one record after another on the end of a journal file:
+ *
+ *   the turn, and which way the player is seeing (see FieldOfView)
+ *   tiles that were dug out
+ *   tiles the player remembers differently
+ *   spots where an item was put down or picked up, and what's there now
+ *   creatures that were taken out of the world
+ *   every creature that's different than the last time it was written down, in full (it's only a few dozen bytes)
+ *   the turn order for each level where anything happened
+ *
+ * The World and the FieldOfView tell us about tiles, items, and creatures coming and going as it happens. To find out
+ * which creatures changed we write each creature on a level where something happened, compare it to what we wrote
+ * last time, and take it back out if it's the same.
+ *
+ * Working out a record has to happen on the game's thread, while nothing's changing, but it's quick. Everything else
+ * happens on a thread of its own so the game never waits on it. That thread writes each record to disk and then plays
+ * it back on its own copy of the game, loaded from the first snapshot, the same way recovering would. Every so often
+ * (COMPACT_EVERY_TURNS, or when the journal gets to COMPACT_AFTER_BYTES) it writes its copy out as a new snapshot and
+ * starts the journal over, so the journal never gets long and recovering never has much to replay. The game's thread
+ * never has to copy the whole world for that, it only ever hands over its records.
+ *
+ * The first snapshot is the one thing that has to come from the game itself. For a new game it's written while the
+ * game's being built (see prepare and NewGamePreparer), and a game that was loaded or recovered already has one on
+ * disk, the files it came from.
+ *
+ * Most creatures change a little every turn (they're a bit closer to regenerating, if nothing else), so a record is
+ * mostly creatures that look a lot like they did last turn. The writer thread deflates each record before writing it,
+ * which makes them several times smaller.
+ *
+ * Everything in the journal is numbered by the same SaveGame.Writer that wrote the first snapshot, and later snapshots
+ * keep those numbers, so recovering is just loading the snapshot and carrying on with the same SaveGame.Reader through
+ * the records. Each record has its length before and after deflating and a checksum in front, so if the game died
+ * halfway through writing one, recovery stops at the last good one.
+ *
+ * The journal's header has the snapshot's turn in it, and a journal that doesn't match the snapshot is ignored; that
+ * only happens if the game died between writing a new snapshot and starting the new journal.
+ *
+ * The disk is only forced to actually write things down when a snapshot is written and when the journal's closed. If
+ * the game crashes the operating system still writes out what it was given, it's only a power cut that could lose the
+ * last few turns.
+ */
+public class Journal {
+    private static final int MAGIC = 0x5442444A; // "TBDJ"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+
+    public static final int COMPACT_EVERY_TURNS = 500;
+    public static final long COMPACT_AFTER_BYTES = 8 * 1024 * 1024;
+
+    public static final File DEFAULT_SNAPSHOT = new File(System.getProperty("user.home"), "tempted-by-dragons.autosave");
+    public static final File DEFAULT_JOURNAL = new File(System.getProperty("user.home"), "tempted-by-dragons.journal");
+
+    /**
+     * Places where something changed this turn, three ints each.
+     */
+    private static class Changes {
+        private int[] xyz = new int[48];
+        private int count;
+
+        private void add(int x, int y, int z) {
+            if (count * 3 == xyz.length)
+                xyz = Arrays.copyOf(xyz, xyz.length * 2);
+            xyz[count * 3] = x;
+            xyz[count * 3 + 1] = y;
+            xyz[count * 3 + 2] = z;
+            count++;
+        }
+    }
+
+    private NewGame game;
+    private World world;
+    private FieldOfView fov;
+    private File snapshotFile;
+    private File journalFile;
+
+    // Where the writer thread loads its copy of the game from, and whether that's a scratch file to delete after.
+    private File fromSnapshot;
+    private File fromJournal;
+    private boolean fromScratch;
+
+    private SaveGame.Writer out;
+    private IdentityHashMap<Creature, byte[]> written = new IdentityHashMap<Creature, byte[]>();
+
+    private Changes tiles = new Changes();
+    private Changes remembered = new Changes();
+    private Changes items = new Changes();
+    private List<Creature> removed = new ArrayList<Creature>();
+    private boolean[] levels;
+
+    // Only touched by the writer thread.
+    private NewGame copy;
+    private SaveGame.Reader copyIn;
+    private int turnsSinceSnapshot;
+    private long bytesSinceSnapshot;
+    private FileChannel channel;
+    private CRC32 checksum = new CRC32();
+    private Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[64 * 1024];
+
+    private volatile IOException failure;
+
+    private ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "journal writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private Journal(NewGame game, SaveGame.Writer out, File fromSnapshot, File fromJournal, boolean fromScratch) {
+        this.game = game;
+        this.world = game.world();
+        this.fov = game.fov();
+        this.out = out;
+        this.fromSnapshot = fromSnapshot;
+        this.fromJournal = fromJournal;
+        this.fromScratch = fromScratch;
+        this.levels = new boolean[world.depth()];
+    }
+
+    /**
+     * Get a new game ready to be autosaved by writing it out in full to a scratch file. That's the slow part of
+     * starting a Journal on a big world, and it can happen on any thread as long as nothing's playing the game yet.
+     *
+     * @param game
+     * @return
+     * @throws IOException
+     */
+    public static Journal prepare(NewGame game) throws IOException {
+        File scratch = File.createTempFile("tbd-autosave", ".save");
+        scratch.deleteOnExit();
+
+        SaveGame.Writer out = new SaveGame.Writer();
+        try {
+            SaveGame.write(game, out, scratch);
+        } catch (IOException e) {
+            scratch.delete();
+            throw e;
+        }
+        return new Journal(game, out, scratch, null, true);
+    }
+
+    /**
+     * Autosaving for a game that was just read from snapshotFile and journalFile (which can be null) by in. Those are
+     * already the game in full, so there's nothing to write first.
+     */
+    static Journal follow(SaveGame.Reader in, NewGame game, File snapshotFile, File journalFile) {
+        return new Journal(game, new SaveGame.Writer(in, false), snapshotFile, journalFile, false);
+    }
+
+    /**
+     * Start autosaving a game. The game usually comes with its Journal ready to go (see prepare and follow),
+     * otherwise it's prepared right here. Writing the first snapshot and journal header happens on the writer thread,
+     * so this returns straight away.
+     *
+     * @param game
+     * @param snapshotFile
+     * @param journalFile
+     * @return
+     * @throws IOException
+     */
+    public static Journal start(NewGame game, File snapshotFile, File journalFile) throws IOException {
+        final Journal journal = game.journal() != null ? game.journal() : prepare(game);
+        game.setJournal(null);
+
+        journal.snapshotFile = snapshotFile;
+        journal.journalFile = journalFile;
+        journal.world.setJournal(journal);
+        journal.fov.setJournal(journal);
+        journal.writer.execute(new Runnable() {
+            public void run() {
+                journal.begin();
+            }
+        });
+        return journal;
+    }
+
+    public static boolean exists(File snapshotFile) {
+        return snapshotFile.isFile();
+    }
+
+    /**
+     * If writing something failed, what went wrong. Nothing more gets written after that.
+     *
+     * @return
+     */
+    public IOException failure() {
+        return failure;
+    }
+
+    public void tileChanged(int x, int y, int z) {
+        tiles.add(x, y, z);
+    }
+
+    public void rememberedTileChanged(int x, int y, int z) {
+        remembered.add(x, y, z);
+    }
+
+    public void itemChanged(int x, int y, int z) {
+        items.add(x, y, z);
+    }
+
+    public void creatureRemoved(Creature creature) {
+        removed.add(creature);
+    }
+
+    public void levelChanged(int z) {
+        levels[z] = true;
+    }
+
+    /**
+     * Write down everything that changed since the last time this was called. The PlayScreen calls it after every
+     * bit of input, whether or not the world took a turn, since the player can change things without a turn going by
+     * (like dropping something).
+     *
+     * @throws IOException
+     */
+    public void endTurn() throws IOException {
+        if (failure != null)
+            return;
+
+        world.writeClock(out);
+        out.writeName(fov.algorithm().name());
+
+        out.writeInt(tiles.count);
+        for (int i = 0; i < tiles.count * 3; i += 3) {
+            int x = tiles.xyz[i], y = tiles.xyz[i + 1], z = tiles.xyz[i + 2];
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            out.writeByte(world.tiles().get(x, y, z));
+        }
+
+        out.writeInt(remembered.count);
+        for (int i = 0; i < remembered.count * 3; i += 3) {
+            int x = remembered.xyz[i], y = remembered.xyz[i + 1], z = remembered.xyz[i + 2];
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            out.writeByte(fov.memory().get(x, y, z));
+        }
+
+        out.writeInt(items.count);
+        for (int i = 0; i < items.count * 3; i += 3) {
+            int x = items.xyz[i], y = items.xyz[i + 1], z = items.xyz[i + 2];
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            out.writeItem(world.item(x, y, z));
+        }
+
+        // Creatures that came and went in the same turn were never written, so there's nothing to take back out.
+        List<Creature> forget = new ArrayList<Creature>();
+        for (Creature creature : removed) {
+            if (out.knows(creature) && !world.scheduler(creature.z).contains(creature))
+                forget.add(creature);
+        }
+        out.writeInt(forget.size());
+        for (Creature creature : forget) {
+            out.writeCreature(creature);
+            written.remove(creature);
+        }
+
+        writeIfChanged(game.player());
+        for (int z = 0; z < levels.length; z++) {
+            if (!levels[z])
+                continue;
+            for (Creature creature : world.scheduler(z).creatures())
+                writeIfChanged(creature);
+        }
+        out.writeCreatureState(null);
+
+        int count = 0;
+        for (boolean level : levels)
+            count += level ? 1 : 0;
+        out.writeInt(count);
+        for (int z = 0; z < levels.length; z++) {
+            if (!levels[z])
+                continue;
+            out.writeInt(z);
+            world.scheduler(z).write(out);
+        }
+
+        tiles.count = 0;
+        remembered.count = 0;
+        items.count = 0;
+        removed.clear();
+        Arrays.fill(levels, false);
+
+        final byte[] record = out.take();
+        writer.execute(new Runnable() {
+            public void run() {
+                append(record);
+                replay(record);
+            }
+        });
+    }
+
+    private void writeIfChanged(Creature creature) throws IOException {
+        int start = out.position();
+        out.writeCreatureState(creature);
+
+        byte[] state = out.since(start);
+        if (Arrays.equals(state, written.get(creature)))
+            out.rewind(start);
+        else
+            written.put(creature, state);
+    }
+
+    /**
+     * Wait for everything to be written, then let go of the journal file and the writer thread's copy of the game.
+     */
+    public void close() {
+        writer.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (channel != null) {
+                        channel.force(false);
+                        channel.close();
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+                channel = null;
+                deflater.end();
+                if (copy != null)
+                    copy.close();
+                copy = null;
+                copyIn = null;
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        world.setJournal(null);
+        fov.setJournal(null);
+    }
+
+    /**
+     * The game's over, there's nothing to recover.
+     */
+    public void discard() {
+        close();
+        snapshotFile.delete();
+        journalFile.delete();
+    }
+
+    // Everything from here down to recover happens on the writer thread.
+
+    /**
+     * Load the writer thread's copy of the game from where the game came from, and start over from it.
+     */
+    private void begin() {
+        try {
+            copyIn = fromJournal == null ? SaveGame.read(fromSnapshot) : replayed(fromSnapshot, fromJournal);
+            copy = copyIn.game();
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            if (fromScratch)
+                fromSnapshot.delete();
+        }
+        compact();
+    }
+
+    /**
+     * Start over with a new snapshot of the copy of the game as it is right now and an empty journal.
+     */
+    private void compact() {
+        if (failure != null)
+            return;
+
+        try {
+            SaveGame.write(copy, new SaveGame.Writer(copyIn, true), snapshotFile);
+
+            if (channel == null)
+                channel = new RandomAccessFile(journalFile, "rw").getChannel();
+            channel.truncate(0);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(copy.world().turn());
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining())
+                channel.write(header);
+        } catch (IOException e) {
+            fail(e);
+        } catch (IllegalStateException e) {
+            fail(new IOException("The snapshot couldn't be written.", e));
+        }
+
+        turnsSinceSnapshot = 0;
+        bytesSinceSnapshot = 0;
+    }
+
+    private void append(byte[] record) {
+        if (failure != null || channel == null)
+            return;
+
+        deflater.reset();
+        deflater.setInput(record);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        checksum.reset();
+        checksum.update(compressed, 0, size);
+
+        ByteBuffer buffer = ByteBuffer.allocate(12 + size);
+        buffer.putInt(record.length).putInt(size).putInt((int)checksum.getValue()).put(compressed, 0, size);
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Play a record back on the copy of the game, so it's always the game as of the last record written down.
+     */
+    private void replay(byte[] record) {
+        if (failure != null || channel == null)
+            return;
+
+        try {
+            copyIn.continueWith(record);
+            replay(copyIn, copy);
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException("A turn couldn't be played back.", e));
+        }
+
+        turnsSinceSnapshot++;
+        bytesSinceSnapshot += record.length;
+        if (turnsSinceSnapshot >= COMPACT_EVERY_TURNS || bytesSinceSnapshot >= COMPACT_AFTER_BYTES)
+            compact();
+    }
+
+    private void fail(IOException e) {
+        if (failure == null)
+            failure = e;
+    }
+
+    /**
+     * Put a game back together after it quit without saving: load the snapshot, then replay every good record in the
+     * journal on top of it. Like SaveGame.load, the game comes with its Journal ready to carry on.
+     *
+     * @param snapshotFile
+     * @param journalFile
+     * @return
+     * @throws IOException
+     */
+    public static NewGame recover(File snapshotFile, File journalFile) throws IOException {
+        SaveGame.Reader in = replayed(snapshotFile, journalFile);
+        NewGame game = in.game();
+        game.setJournal(follow(in, game, snapshotFile, journalFile));
+        return game;
+    }
+
+    private static SaveGame.Reader replayed(File snapshotFile, File journalFile) throws IOException {
+        SaveGame.Reader in = SaveGame.read(snapshotFile);
+        NewGame game = in.game();
+        boolean recovered = false;
+        try {
+            recover(in, game, journalFile);
+            recovered = true;
+            return in;
+        } finally {
+            if (!recovered)
+                game.close();
+        }
+    }
+
+    private static void recover(SaveGame.Reader in, NewGame game, File journalFile) throws IOException {
+        if (!journalFile.isFile())
+            return;
+
+        ByteBuffer journal;
+        FileInputStream stream = new FileInputStream(journalFile);
+        try {
+            FileChannel channel = stream.getChannel();
+            journal = ByteBuffer.allocate((int)channel.size());
+            while (journal.hasRemaining() && channel.read(journal) >= 0) {
+            }
+            journal.flip();
+        } finally {
+            stream.close();
+        }
+
+        if (journal.remaining() < HEADER_BYTES || journal.getInt() != MAGIC || journal.getInt() > VERSION
+                || journal.getLong() != game.world().turn())
+            return;
+
+        CRC32 checksum = new CRC32();
+        Inflater inflater = new Inflater();
+        try {
+            while (journal.remaining() >= 12) {
+                int length = journal.getInt();
+                int size = journal.getInt();
+                int expected = journal.getInt();
+                if (length < 0 || size < 0 || size > journal.remaining())
+                    break;
+
+                byte[] compressed = new byte[size];
+                journal.get(compressed);
+                checksum.reset();
+                checksum.update(compressed, 0, size);
+                if ((int)checksum.getValue() != expected)
+                    break;
+
+                byte[] record = new byte[length];
+                inflater.reset();
+                inflater.setInput(compressed);
+                int read = 0;
+                while (read < length && !inflater.finished())
+                    read += inflater.inflate(record, read, length - read);
+
+                in.continueWith(record);
+                replay(in, game);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(journalFile + " is damaged.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void replay(SaveGame.Reader in, NewGame game) throws IOException {
+        World world = game.world();
+        FieldOfView fov = game.fov();
+
+        world.readClock(in);
+        fov.setAlgorithm(FieldOfView.Algorithm.valueOf(in.readName()));
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            world.setTile(in.readInt(), in.readInt(), in.readInt(), in.readByte());
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+            fov.memory().set(in.readInt(), in.readInt(), in.readInt(), in.readByte());
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+            world.setItem(in.readInt(), in.readInt(), in.readInt(), in.readItem());
+
+        // The player stays written down after dying, but doesn't go back on the map.
+        count = in.readInt();
+        List<Creature> forgotten = new ArrayList<Creature>(count);
+        for (int i = 0; i < count; i++) {
+            Creature creature = in.readCreature();
+            world.forget(creature);
+            forgotten.add(creature);
+        }
+
+        while (true) {
+            Creature before = in.peekCreature();
+            Point from = before == null ? null : new Point(before.x, before.y, before.z);
+
+            Creature creature = in.readCreatureState();
+            if (creature == null)
+                break;
+            if (!forgotten.contains(creature))
+                world.relocate(creature, from);
+        }
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+            world.readScheduler(in.readInt(), in);
+    }
+}
@@ -0,0 +1,78 @@
+package game;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayDeque;
+
+/**
+ * Key presses waiting for the game loop. Swing adds them as they come in and the game loop takes them one at a time.
+ *
+ * Holding down a movement key sends a key press many times a second, much faster than a big level can take turns. If
+ * we kept them all, letting go of the key would leave the player running for a while on their own. So while a key is
+ * held down (no key release since it was pressed) another press of it that matches the last one still waiting is thrown
+ * away (the one that's already waiting will do the same thing), and there's a limit on how many keys can be waiting at
+ * all. Tapping a key twice on purpose sends a release in between, so both taps are kept.
+ */
+public class KeyQueue {
+    private ArrayDeque<KeyEvent> keys = new ArrayDeque<KeyEvent>();
+    private int capacity;
+    private KeyEvent held;
+
+    public KeyQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a key press unless it's the held down key repeating itself while it's still waiting, or the queue is full.
+     *
+     * @param key
+     * @return true if the key press was added
+     */
+    public synchronized boolean offer(KeyEvent key) {
+        boolean autoRepeat = held != null && isRepeat(held, key);
+        held = key;
+
+        KeyEvent last = keys.peekLast();
+        if (autoRepeat && last != null && isRepeat(last, key))
+            return false;
+
+        if (keys.size() >= capacity)
+            return false;
+
+        keys.addLast(key);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Let go of a key, so the next press of it counts as a new one.
+     *
+     * @param key
+     */
+    public synchronized void released(KeyEvent key) {
+        if (held != null && held.getKeyCode() == key.getKeyCode())
+            held = null;
+    }
+
+    /**
+     * Wait for the next key press.
+     *
+     * @return
+     * @throws InterruptedException
+     */
+    public synchronized KeyEvent take() throws InterruptedException {
+        while (keys.isEmpty())
+            wait();
+
+        return keys.removeFirst();
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    private static boolean isRepeat(KeyEvent a, KeyEvent b) {
+        return a.getKeyCode() == b.getKeyCode()
+                && a.getKeyChar() == b.getKeyChar()
+                && a.getModifiersEx() == b.getModifiersEx();
+    }
+}
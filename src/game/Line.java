@@ -3,6 +3,7 @@ package game;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Created by Max on 3/17/2016.
@@ -14,10 +15,14 @@ import java.util.List;
  *
  * https://en.wikipedia.org/wiki/Bresenham%27s_line_algorithm
  *
- * Note: If you look this all the work is done in the constructor - that's a bad sign. So says Misko Hevery of Google
- * fame, Martian Feathers of Working Effectively With Legacy Code, and anyone who's had to deal with this before. On
- * the other hand, it doesn't do that much work; it just creates a list of points. The points are value objects and the
- * line itself could be a value object.
+ * Note: If you look this all the work used to be done in the constructor - that's a bad sign. So says Misko Hevery of
+ * Google fame, Martian Feathers of Working Effectively With Legacy Code, and anyone who's had to deal with this before.
+ * It turned out to matter: line of sight, the field of view, and throwing all build lines constantly and usually only
+ * care about the first few points before something blocks the way. So now the constructor just remembers the end
+ * points and the points are worked out as you ask for them.
+ *
+ * For the really hot spots there's a Cursor that steps along a line using plain ints, and a walk method that visits
+ * each x and y and stops as soon as the visitor says so. Neither of those create any Points at all.
  *
  * http://misko.hevery.com/code-reviewers-guide/flaw-constructor-does-real-work/
  * http://c2.com/cgi/wiki?ConstructorDoesTheWork
@@ -25,46 +30,149 @@ import java.util.List;
 
 public class Line implements Iterable<Point> {
 
-    private List<Point> points;
-    public List<Point> getPoints() {
-        return points;
+    /**
+     * Something that wants to look at each location along a line. Return false to stop walking.
+     */
+    public interface Visitor {
+        boolean visit(int x, int y);
     }
 
-    public Line(int x0, int y0, int x1, int y1) {
-        points = new ArrayList<Point>();
+    /**
+     * Steps along a line one location at a time. It starts out on the first point; call next to move to the following
+     * one, which returns false once we've already reached the end. A Cursor can be reset and reused for another line.
+     *
+     *      Line.Cursor cursor = new Line.Cursor(x0, y0, x1, y1);
+     *      do {
+     *          ... cursor.x(), cursor.y() ...
+     *      } while (cursor.next());
+     */
+    public static class Cursor {
+        private int x;
+        private int y;
+        private int x1;
+        private int y1;
+        private int dx;
+        private int dy;
+        private int sx;
+        private int sy;
+        private int err;
+
+        public Cursor() {
+        }
+
+        public Cursor(int x0, int y0, int x1, int y1) {
+            reset(x0, y0, x1, y1);
+        }
+
+        public Cursor reset(int x0, int y0, int x1, int y1) {
+            this.x = x0;
+            this.y = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.dx = Math.abs(x1-x0);
+            this.dy = Math.abs(y1-y0);
+            this.sx = x0 < x1 ? 1 : -1;
+            this.sy = y0 < y1 ? 1 : -1;
+            this.err = dx-dy;
+            return this;
+        }
 
-        int dx = Math.abs(x1-x0);
-        int dy = Math.abs(y1-y0);
+        public int x() {
+            return x;
+        }
 
-        int sx = x0 < x1 ? 1 : -1;
-        int sy = y0 < y1 ? 1 : -1;
-        int err = dx-dy;
+        public int y() {
+            return y;
+        }
 
-        while (true){
-            points.add(new Point(x0, y0, 0));
+        public boolean isAtEnd() {
+            return x == x1 && y == y1;
+        }
 
-            if (x0==x1 && y0==y1)
-                break;
+        public boolean next() {
+            if (isAtEnd())
+                return false;
 
             int e2 = err * 2;
             if (e2 > -dx) {
                 err -= dy;
-                x0 += sx;
+                x += sx;
             }
             if (e2 < dx){
                 err += dx;
-                y0 += sy;
+                y += sy;
             }
+            return true;
         }
     }
 
+    /**
+     * Visit each location from x0, y0 to x1, y1 in order.
+     *
+     * @return true if we made it all the way to the end, false if the visitor stopped us
+     */
+    public static boolean walk(int x0, int y0, int x1, int y1, Visitor visitor) {
+        Cursor cursor = new Cursor(x0, y0, x1, y1);
+        do {
+            if (!visitor.visit(cursor.x(), cursor.y()))
+                return false;
+        } while (cursor.next());
+        return true;
+    }
+
+    private int x0;
+    private int y0;
+    private int x1;
+    private int y1;
+
+    private List<Point> points;
+    public List<Point> getPoints() {
+        if (points == null) {
+            List<Point> all = new ArrayList<Point>();
+            for (Point p : this)
+                all.add(p);
+            points = all;
+        }
+        return points;
+    }
+
+    public Line(int x0, int y0, int x1, int y1) {
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+    }
+
     /**
      * To make things a tiny bit more convenient to loop through the points in a line, we can make the class implement
      * Iterable<Point>. All we have to do is declare that the Line implements Iterable<Point> and add the following
-     * method:
+     * method. Breaking out of the loop early means we never work out the rest of the line.
      */
     @Override
     public Iterator<Point> iterator() {
-        return points.iterator();
+        if (points != null)
+            return points.iterator();
+
+        return new Iterator<Point>() {
+            private Cursor cursor = new Cursor(x0, y0, x1, y1);
+            private boolean started;
+
+            @Override
+            public boolean hasNext() {
+                return !started || !cursor.isAtEnd();
+            }
+
+            @Override
+            public Point next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                if (started)
+                    cursor.next();
+                started = true;
+
+                return new Point(cursor.x(), cursor.y(), 0);
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values that doesn't box anything. A HashMap<Long, Integer> makes a Long for every
+ * lookup and an entry object for every key, which is a lot of garbage when the lookups happen once per tile.
+ *
+ * The keys and values live in two plain arrays using open addressing: a key goes in the first free slot at or after
+ * where it hashes to. The table is kept at most half full so that's never far, and doubles in size when it gets
+ * there. Nothing can be removed, we haven't needed to.
+ *
+ * https://en.wikipedia.org/wiki/Open_addressing
+ */
+public class LongIntMap {
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) * 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The value for the key, or missing if there isn't one.
+     *
+     * @param key
+     * @param missing
+     * @return
+     */
+    public int get(long key, int missing) {
+        for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key)
+                return values[slot];
+        }
+        return missing;
+    }
+
+    public void put(long key, int value) {
+        int slot = slot(key);
+        for (; used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+
+        if (size * 2 > keys.length)
+            grow();
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // Spread the bits around (the murmur3 finalizer) so keys that only differ in their high bits don't collide.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int)key & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i])
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
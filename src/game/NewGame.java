@@ -0,0 +1,184 @@
+package game;
+
+import game.creatures.Creature;
+import game.creatures.CreatureFactory;
+import game.creatures.FieldOfView;
+import game.items.ItemFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static game.screens.Screen.SCREEN_HEIGHT;
+import static game.screens.Screen.SCREEN_WIDTH;
+
+/**
+ * Everything a new game starts with: the world, the player, and everything living in it or lying around in it. This
+ * used to be built right in PlayScreen's constructor. Now it's in its own class so it can be built ahead of time on
+ * another thread, see NewGamePreparer.
+ *
+ * Nothing here touches the screen, so it's safe to build anywhere. Once it's handed to a PlayScreen it belongs to the
+ * game loop like everything else.
+ */
+public class NewGame {
+    private World world;
+    public World world() {
+        return world;
+    }
+
+    private Creature player;
+    public Creature player() {
+        return player;
+    }
+
+    private List<String> messages;
+    public List<String> messages() {
+        return messages;
+    }
+
+    private FieldOfView fov;
+    public FieldOfView fov() {
+        return fov;
+    }
+
+    private Journal journal;
+    Journal journal() {
+        return journal;
+    }
+
+    /**
+     * How this game gets autosaved once it's being played, if that's been worked out ahead of time. See Journal.start.
+     *
+     * @param journal
+     */
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public NewGame() {
+        this(SCREEN_WIDTH, SCREEN_HEIGHT, 5);
+    }
+
+    /**
+     * A game in a world of any size. The world keeps its tiles in chunks that can go to disk (see ChunkedTiles) so it
+     * doesn't have to be something that fits on the screen, or in memory.
+     *
+     * @param width
+     * @param height
+     * @param depth
+     */
+    public NewGame(int width, int height, int depth) {
+        messages = new ArrayList<String>();
+        createWorld(width, height, depth);
+        fov = new FieldOfView(world);
+
+        CreatureFactory creatureFactory = new CreatureFactory(world);
+        createCreatures(creatureFactory);
+
+        // Only the level the player is on needs to be fully simulated.
+        world.setFocus(player);
+
+        ItemFactory itemFactory = new ItemFactory(world);
+        createItems(itemFactory);
+    }
+
+    /**
+     * A game that's already been played a while, see SaveGame.load.
+     *
+     * @param world
+     * @param player
+     * @param messages
+     * @param fov
+     */
+    NewGame(World world, Creature player, List<String> messages, FieldOfView fov) {
+        this.world = world;
+        this.player = player;
+        this.messages = messages;
+        this.fov = fov;
+    }
+
+    /**
+     * Done with this game for good. The world and what the player remembers of it can both be spilling to scratch
+     * files (see ChunkedTiles), which would otherwise hang around until the game exits.
+     */
+    public void close() {
+        world.close();
+        fov.close();
+    }
+
+    /**
+     * The createWorld method does exactly that, create's a world. I have a feeling this is going to expand as we make
+     * the world more interesting so putting it in a separate method will reduce how tangled it get's with other code
+     * and make changes easier later on.
+     */
+    private void createWorld(int width, int height, int depth){
+        // world = new WorldBuilder(90, 32, 5)
+        world = new WorldBuilder(width, height, depth)
+                .makeCaves()
+                .build();
+    }
+
+    /**
+     * Populate the world with both our player and also a bunch of fungus.
+     *
+     * @param creatureFactory
+     */
+    private void createCreatures(CreatureFactory creatureFactory){
+        player = creatureFactory.newPlayer(messages, fov); //Create the player "creature".
+
+        for (int z = 0; z < world.depth(); z++){
+
+            // Two fungus among us.
+            for (int i = 0; i < 2; i++) {
+                creatureFactory.newFungus(z);
+            }
+
+            // How about 20 bats per level.
+            for (int i = 0; i < 20; i++){
+                creatureFactory.newBat(z);
+            }
+
+            // Add a couple of zombies and goblins to each level.
+            for (int i = 0; i < z + 3; i++){
+                creatureFactory.newZombie(z, player);
+                creatureFactory.newGoblin(z, player);
+            }
+
+            // Just one alicorn per level.
+            creatureFactory.newAlicorn(z);
+        }
+    }
+
+    private void createItems(ItemFactory itemFactory) {
+
+        // Scatter some rocks around.
+        for (int z = 0; z < world.depth(); z++){
+            for (int i = 0; i < world.width() * world.height() / 20; i++){
+                itemFactory.newRock(z);
+            }
+
+            // Drop a few food rations per level.
+            for (int i = 0; i < world.width() * world.height() / 1000; i++){
+                itemFactory.newRation(z);
+            }
+
+            for (int i = 0; i < 5; i++){
+                itemFactory.randomArmor(z);
+            }
+
+            for (int i = 0; i < 5; i++){
+                itemFactory.randomWeapon(z);
+            }
+
+            for (int i = 0; i < 5; i++) {
+                itemFactory.randomPotion(z);
+            }
+
+            for (int i=0; i < 20; i++) {
+                itemFactory.randomSpellBook(z);
+            }
+        }
+
+        // Find this and return it to the surface and you win the game.
+        itemFactory.newVictoryItem(world.depth() - 1);
+    }
+}
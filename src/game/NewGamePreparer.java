@@ -0,0 +1,93 @@
+package game;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Building a new game (the caves, every monster, every item) takes long enough that pressing space on the StartScreen
+ * used to freeze everything for a moment, and so did restarting. But the player always spends at least a moment
+ * looking at the StartScreen, or the screen telling them they won or lost, so we use that time: those screens call
+ * prepare() as soon as they're made and the next game starts building on a background thread. When the player is
+ * ready PlayScreen calls take() and usually the game's already waiting. If they were quicker than that, take() just
+ * waits for it to finish.
+ *
+ * Only one game is ever being prepared. Calling prepare() again while one's waiting does nothing, so there's no harm
+ * in every one of those screens asking.
+ */
+public class NewGamePreparer {
+    private static ExecutorService builder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "new game builder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // Don't get in the way of the screen.
+            return thread;
+        }
+    });
+
+    private static Future<NewGame> next;
+
+    private NewGamePreparer() {
+    }
+
+    /**
+     * Start building the next game in the background, unless one's already built or on its way.
+     */
+    public static synchronized void prepare() {
+        if (next != null)
+            return;
+
+        next = builder.submit(new Callable<NewGame>() {
+            public NewGame call() {
+                NewGame game = new NewGame();
+                // Writing out the first autosave takes about as long as building a big world does, so do it here too.
+                try {
+                    game.setJournal(Journal.prepare(game));
+                } catch (IOException e) {
+                    // Journal.start tries again once the game starts, and tells the player if it still can't.
+                }
+                return game;
+            }
+        });
+    }
+
+    /**
+     * The next game, waiting for it to finish if it isn't ready yet. If nobody asked for one ahead of time it's built
+     * right here.
+     *
+     * @return
+     */
+    public static NewGame take() {
+        Future<NewGame> game;
+        synchronized (NewGamePreparer.class) {
+            game = next;
+            next = null;
+        }
+
+        if (game == null)
+            return new NewGame();
+
+        try {
+            return game.get();
+        } catch (InterruptedException e) {
+            game.cancel(true);
+            Thread.currentThread().interrupt();
+            return new NewGame();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Couldn't build a new game.", e.getCause());
+        }
+    }
+
+    /**
+     * Is the next game ready to go right now?
+     *
+     * @return
+     */
+    public static synchronized boolean isReady() {
+        return next != null && next.isDone();
+    }
+}
@@ -0,0 +1,251 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * WorldBuilder.smooth looks at 9 bytes for every tile on every pass, one tile at a time, on one thread. That's fine for
+ * a screen sized world but it's the slowest part of starting a big one. This does exactly the same smoothing, it just
+ * does it 64 tiles at a time.
+ *
+ * Each row of a level is packed into longs with a 1 bit for every wall. Shifting a row left and right by one lines each
+ * tile up with its neighbors, and adding the bits together with plain and/or/xor (a "bit sliced" adder, the same thing
+ * a circuit does) gives every tile's count of neighboring walls as a 4 bit number spread across four longs. A tile
+ * becomes a wall when most of its neighbors are walls, which is one more bit of logic.
+ *
+ * The levels don't affect each other at all, and within a pass the rows only read the previous pass, so each level is
+ * its own task and each pass splits its rows into bands that run on the fork-join pool.
+ *
+ * Tiles on the edge of the level only count the neighbors that are actually there, so they use a different threshold.
+ * There aren't many of them so they just get done one at a time like WorldBuilder does. The result is identical to the
+ * scalar smooth for the same tiles.
+ *
+ * https://en.wikipedia.org/wiki/Bit_slicing
+ */
+public class PackedCaveSmoother {
+    private static final byte FLOOR = (byte)Tile.FLOOR.ordinal();
+    private static final byte WALL = (byte)Tile.WALL.ordinal();
+
+    /**
+     * Bands smaller than this aren't worth handing to another thread.
+     */
+    private static final int ROWS_PER_BAND = 32;
+
+    private int width;
+    private int height;
+    private int depth;
+    private int words;
+    private long lastWordMask;
+    private ForkJoinPool pool;
+
+    public PackedCaveSmoother(int width, int height, int depth) {
+        this(width, height, depth, ForkJoinPool.commonPool());
+    }
+
+    public PackedCaveSmoother(int width, int height, int depth, ForkJoinPool pool) {
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.words = (width + 63) / 64;
+        this.lastWordMask = width % 64 == 0 ? -1L : (1L << (width % 64)) - 1;
+        this.pool = pool;
+    }
+
+    /**
+     * Smooth the tiles, laid out like the World's, in place.
+     *
+     * @param tiles
+     * @param times
+     */
+    public void smooth(final byte[] tiles, final int times) {
+        if (times <= 0 || width == 0 || height == 0)
+            return;
+
+        List<RecursiveAction> levels = new ArrayList<RecursiveAction>();
+        for (int z = 0; z < depth; z++) {
+            final int level = z;
+            levels.add(new RecursiveAction() {
+                protected void compute() {
+                    smoothLevel(tiles, level, times);
+                }
+            });
+        }
+
+        pool.invoke(new RecursiveAction() {
+            protected void compute() {
+                invokeAll(levels);
+            }
+        });
+    }
+
+    private void smoothLevel(byte[] tiles, int z, int times) {
+        long[] walls = new long[height * words];
+        long[] temp = new long[height * words];
+
+        pack(tiles, z, walls);
+
+        for (int time = 0; time < times; time++) {
+            new Band(walls, temp, 0, height).invoke();
+
+            long[] swap = walls;
+            walls = temp;
+            temp = swap;
+        }
+
+        unpack(walls, tiles, z);
+    }
+
+    /**
+     * One pass over the rows from start up to end, splitting in half until the bands are small enough.
+     */
+    private class Band extends RecursiveAction {
+        private static final long serialVersionUID = -6120432795418733109L;
+
+        private long[] from;
+        private long[] to;
+        private int start;
+        private int end;
+
+        private Band(long[] from, long[] to, int start, int end) {
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - start <= ROWS_PER_BAND) {
+                for (int y = start; y < end; y++)
+                    smoothRow(from, to, y);
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new Band(from, to, start, middle), new Band(from, to, middle, end));
+        }
+    }
+
+    private void smoothRow(long[] from, long[] to, int y) {
+        int row = y * words;
+
+        for (int w = 0; w < words; w++) {
+            // Sum each of the three rows horizontally, giving a two bit count (0 to 3) per tile.
+            long a0 = 0, a1 = 0, b0 = 0, b1 = 0, c0 = 0, c1 = 0;
+
+            if (y > 0) {
+                long l = left(from, row - words, w), m = from[row - words + w], r = right(from, row - words, w);
+                a0 = l ^ m ^ r;
+                a1 = (l & m) | (r & (l ^ m));
+            }
+            {
+                long l = left(from, row, w), m = from[row + w], r = right(from, row, w);
+                b0 = l ^ m ^ r;
+                b1 = (l & m) | (r & (l ^ m));
+            }
+            if (y < height - 1) {
+                long l = left(from, row + words, w), m = from[row + words + w], r = right(from, row + words, w);
+                c0 = l ^ m ^ r;
+                c1 = (l & m) | (r & (l ^ m));
+            }
+
+            // Add the three rows together, giving a four bit count (0 to 9) per tile.
+            long s0 = a0 ^ b0;
+            long k = a0 & b0;
+            long s1 = a1 ^ b1 ^ k;
+            long s2 = (a1 & b1) | (k & (a1 ^ b1));
+
+            long t0 = s0 ^ c0;
+            k = s0 & c0;
+            long t1 = s1 ^ c1 ^ k;
+            k = (s1 & c1) | (k & (s1 ^ c1));
+            long t2 = s2 ^ k;
+            long t3 = s2 & k;
+
+            // Away from the edges there are 9 tiles to count, so 5 or more walls makes a wall.
+            long wall = t3 | (t2 & (t1 | t0));
+
+            if (w == words - 1)
+                wall &= lastWordMask;
+            to[row + w] = wall;
+        }
+
+        // The edges have fewer neighbors so do them the slow way.
+        if (y == 0 || y == height - 1) {
+            for (int x = 0; x < width; x++)
+                smoothEdge(from, to, x, y);
+        } else {
+            smoothEdge(from, to, 0, y);
+            smoothEdge(from, to, width - 1, y);
+        }
+    }
+
+    /**
+     * The same rule as WorldBuilder.smooth: count the walls and floors that are actually on the level and become a
+     * floor if there's at least as many floors as walls.
+     */
+    private void smoothEdge(long[] from, long[] to, int x, int y) {
+        int floors = 0;
+        int rocks = 0;
+
+        for (int oy = -1; oy < 2; oy++) {
+            for (int ox = -1; ox < 2; ox++) {
+                if (x + ox < 0 || x + ox >= width || y + oy < 0 || y + oy >= height) continue;
+                if (isWall(from, x + ox, y + oy)) rocks++;
+                else floors++;
+            }
+        }
+
+        int i = y * words + (x >>> 6);
+        long bit = 1L << (x & 63);
+        if (floors >= rocks)
+            to[i] &= ~bit;
+        else
+            to[i] |= bit;
+    }
+
+    /**
+     * Each tile's left neighbor, lined up with the tile. Bit 0 of a word is the leftmost tile so this pulls the top bit
+     * of the previous word in.
+     */
+    private long left(long[] bits, int row, int w) {
+        long value = bits[row + w] << 1;
+        if (w > 0)
+            value |= bits[row + w - 1] >>> 63;
+        return value;
+    }
+
+    /**
+     * Each tile's right neighbor, lined up with the tile.
+     */
+    private long right(long[] bits, int row, int w) {
+        long value = bits[row + w] >>> 1;
+        if (w < words - 1)
+            value |= bits[row + w + 1] << 63;
+        return value;
+    }
+
+    private boolean isWall(long[] bits, int x, int y) {
+        return (bits[y * words + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    private void pack(byte[] tiles, int z, long[] bits) {
+        int offset = z * height * width;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (tiles[offset + y * width + x] != FLOOR)
+                    bits[y * words + (x >>> 6)] |= 1L << (x & 63);
+            }
+        }
+    }
+
+    private void unpack(long[] bits, byte[] tiles, int z) {
+        int offset = z * height * width;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                tiles[offset + y * width + x] = isWall(bits, x, y) ? WALL : FLOOR;
+            }
+        }
+    }
+}
@@ -10,15 +10,12 @@ import java.util.List;
  * Points and Lines have all the work done in their constructors and we're extend this idea to Paths. So the Path class
  * hides the details to keep things simple.
  *
- * Creating a new path each turn may not be the best idea but we'll only have a few creatures and rogulikes are turn
- * based so it shouldn't be too much of a problem. If it does be come a performance problem we can fix it.
- *
- * ToDo: Verify if turn-based path creation is too slow.
+ * Creating a new path each turn may not be the best idea but rogulikes are turn based so it shouldn't be too much of a
+ * problem. It did become a performance problem once the levels filled up with zombies and goblins, so the searching
+ * now happens in the world's own array based PathFinder instead of one shared HashMap based one.
  */
 public class Path {
 
-    private static PathFinder pf = new PathFinder();
-
     private List<Point> points;
     public List<Point> points() { return points; }
 
@@ -32,9 +29,6 @@ public class Path {
      * @param y
      */
     public Path(Creature creature, int x, int y){
-        points = pf.findPath(creature,
-                new Point(creature.x, creature.y, creature.z),
-                new Point(x, y, creature.z),
-                300);
+        points = creature.pathTo(x, y, 300);
     }
 }
\ No newline at end of file
@@ -1,132 +1,255 @@
 package game;
 
 import game.creatures.Creature;
+import game.events.PathSearchEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 
 /**
  * Created by Max on 3/20/2016.
  *
  * The following code that implements the A Star algorithm and is specialized for our creatures.
  *
- * Adding pathfinding to a game is a big deal. The PathFinder we're using for now is good enough but has some major
- * inefficiencies. I'm using a HashMap of points rather than an array so we don't have to worry about the world size or
- * anything like that. This will take up less memory and handle aarbitrarily large maps but it will be much much slower.
- * I tried to keep the pathfinding stuff completely unaware of the World and that really shaped the implementation. It
- * turns out that's not good for performance, debugging, or overall clarity.
+ * Adding pathfinding to a game is a big deal. The first PathFinder used a HashMap of points rather than an array so we
+ * didn't have to worry about the world size, and it tried to keep the pathfinding stuff completely unaware of the
+ * World. It turns out that's not good for performance, debugging, or overall clarity: every step scanned the whole
+ * open list, membership checks were linear, and the cost to get anywhere was recomputed by walking the parent chain.
  *
- * A* pathfinding is a simple enough idea that you could probably swap this implementation for another.
+ * So now each World gets its own PathFinder sized to the level. Every location is just an index (y * width + x) into
+ * a handful of flat int arrays for the cost to get there, its parent, and where it sits in the open heap. The open
+ * list is a binary heap that knows where each location lives so we can bump a location's priority without searching
+ * for it. Instead of clearing the arrays before every search we stamp each location with the search's generation;
+ * anything with an old stamp is treated as never seen.
  *
- * ToDo: Implemnent other pathfinding algoritm.
+ * A* pathfinding is a simple enough idea that you could probably swap this implementation for another.
  */
 public class PathFinder {
-    private ArrayList<Point> open;
-    private ArrayList<Point> closed;
-    private HashMap<Point, Point> parents;
-    private HashMap<Point,Integer> totalCost;
-
-    public PathFinder() {
-        this.open = new ArrayList<Point>();
-        this.closed = new ArrayList<Point>();
-        this.parents = new HashMap<Point, Point>();
-        this.totalCost = new HashMap<Point, Integer>();
+    private int width;
+    private int height;
+
+    private int[] costs;       // Cost to get to each location from the start.
+    private int[] estimates;   // Cost so far plus the heuristic, what the heap is ordered by.
+    private int[] parents;     // Index of the location we came from.
+    private int[] heapIndex;   // Where the location is in the heap, or -1 once it's closed.
+    private int[] generations; // Which search last touched this location.
+    private int generation;
+
+    private int[] heap;
+    private int heapSize;
+
+    public PathFinder(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        int size = width * height;
+        this.costs = new int[size];
+        this.estimates = new int[size];
+        this.parents = new int[size];
+        this.heapIndex = new int[size];
+        this.generations = new int[size];
+        this.heap = new int[size];
     }
 
-    private int heuristicCost(Point from, Point to) {
-        return Math.max(Math.abs(from.x - to.x), Math.abs(from.y - to.y));
+    private int heuristicCost(int x, int y, int endX, int endY) {
+        return Math.max(Math.abs(x - endX), Math.abs(y - endY));
     }
 
-    private int costToGetTo(Point from) {
-        return parents.get(from) == null ? 0 : (1 + costToGetTo(parents.get(from)));
-    }
+    /**
+     * Find a path for the creature from start to end, giving up after maxTries locations have been closed. The path
+     * doesn't include the start but does include the end, or is null if we couldn't get there in time.
+     *
+     * @param creature
+     * @param start
+     * @param end
+     * @param maxTries
+     * @return
+     */
+    public ArrayList<Point> findPath(Creature creature, Point start, Point end, int maxTries) {
+        if (!inBounds(start.x, start.y) || !inBounds(end.x, end.y))
+            return null;
+
+        long started = Perf.start();
+        PathSearchEvent event = new PathSearchEvent();
+        event.begin();
+
+        nextGeneration();
+
+        int startIndex = start.y * width + start.x;
+        int endIndex = end.y * width + end.x;
+
+        open(startIndex, -1, 0, heuristicCost(start.x, start.y, end.x, end.y));
+
+        ArrayList<Point> path = null;
+        int tries = 0;
+        while (tries < maxTries && heapSize > 0){
+            int closest = pop();
+            tries++;
 
-    private int totalCost(Point from, Point to) {
-        if (totalCost.containsKey(from))
-            return totalCost.get(from);
+            if (closest == endIndex) {
+                path = createPath(startIndex, endIndex, start.z);
+                break;
+            }
 
-        int cost = costToGetTo(from) + heuristicCost(from, to);
-        totalCost.put(from, cost);
-        return cost;
+            checkNeighbors(creature, closest, end, endIndex);
+        }
+
+        if (started != 0L) {
+            Perf.stop(Perf.PATH_TIME, started);
+            Perf.count(Perf.PATH_NODES, tries);
+            if (path != null)
+                Perf.count(Perf.PATH_LENGTH, path.size());
+        }
+
+        if (event.shouldCommit()) {
+            event.creature = creature.name();
+            event.startX = start.x;
+            event.startY = start.y;
+            event.endX = end.x;
+            event.endY = end.y;
+            event.z = start.z;
+            event.expandedNodes = tries;
+            event.success = path != null;
+            event.pathLength = path == null ? 0 : path.size();
+            event.commit();
+        }
+        return path;
     }
 
-    private void reParent(Point child, Point parent){
-        parents.put(child, parent);
-        totalCost.remove(child);
+    private void checkNeighbors(Creature creature, int closest, Point end, int endIndex) {
+        int cx = closest % width;
+        int cy = closest / width;
+        int cost = costs[closest] + 1;
+
+        for (int ox = -1; ox < 2; ox++){
+            for (int oy = -1; oy < 2; oy++){
+                if (ox == 0 && oy == 0)
+                    continue;
+
+                int nx = cx + ox;
+                int ny = cy + oy;
+                if (!inBounds(nx, ny))
+                    continue;
+
+                int neighbor = ny * width + nx;
+
+                if (generations[neighbor] == generation) {
+                    // Already closed, or already open by a path that's at least as good.
+                    if (heapIndex[neighbor] < 0 || costs[neighbor] <= cost)
+                        continue;
+
+                    costs[neighbor] = cost;
+                    estimates[neighbor] = cost + heuristicCost(nx, ny, end.x, end.y);
+                    parents[neighbor] = closest;
+                    siftUp(heapIndex[neighbor]);
+                } else if (neighbor == endIndex || creature.canEnter(nx, ny, creature.z)) {
+                    open(neighbor, closest, cost, cost + heuristicCost(nx, ny, end.x, end.y));
+                }
+            }
+        }
     }
 
-    public ArrayList<Point> findPath(Creature creature, Point start, Point end, int maxTries) {
-        open.clear();
-        closed.clear();
-        parents.clear();
-        totalCost.clear();
+    private ArrayList<Point> createPath(int startIndex, int endIndex, int z) {
+        ArrayList<Point> path = new ArrayList<Point>();
 
-        open.add(start);
+        for (int i = endIndex; i != startIndex; i = parents[i])
+            path.add(new Point(i % width, i / width, z));
 
-        for (int tries = 0; tries < maxTries && open.size() > 0; tries++){
-            Point closest = getClosestPoint(end);
+        Collections.reverse(path);
+        return path;
+    }
 
-            open.remove(closest);
-            closed.add(closest);
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
 
-            if (closest.equals(end))
-                return createPath(start, closest);
-            else
-                checkNeighbors(creature, end, closest);
+    /**
+     * Start a new search. Once in a very long while the generation counter wraps around and we do have to clear the
+     * stamps, otherwise a location stamped billions of searches ago could look current.
+     */
+    private void nextGeneration() {
+        heapSize = 0;
+        generation++;
+
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(generations, 0);
+            generation = 1;
         }
-        return null;
     }
 
-    private Point getClosestPoint(Point end) {
-        Point closest = open.get(0);
-        for (Point other : open){
-            if (totalCost(other, end) < totalCost(closest, end))
-                closest = other;
-        }
-        return closest;
+    private void open(int index, int parent, int cost, int estimate) {
+        generations[index] = generation;
+        costs[index] = cost;
+        estimates[index] = estimate;
+        parents[index] = parent;
+
+        heap[heapSize] = index;
+        heapIndex[index] = heapSize;
+        siftUp(heapSize++);
     }
 
-    private void checkNeighbors(Creature creature, Point end, Point closest) {
-        for (Point neighbor : closest.neighbors8()) {
-            if (closed.contains(neighbor)
-                    || !creature.canEnter(neighbor.x, neighbor.y, creature.z)
-                    && !neighbor.equals(end))
-                continue;
-
-            if (open.contains(neighbor))
-                reParentNeighborIfNecessary(closest, neighbor);
-            else
-                reParentNeighbor(closest, neighbor);
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
         }
+        return top;
     }
 
-    private void reParentNeighbor(Point closest, Point neighbor) {
-        reParent(neighbor, closest);
-        open.add(neighbor);
+    /**
+     * Lower estimates come first. On a tie we prefer whichever has come further since it's probably closer to the end,
+     * which keeps us from fanning out across open floor.
+     */
+    private boolean before(int a, int b) {
+        if (estimates[a] != estimates[b])
+            return estimates[a] < estimates[b];
+        return costs[a] > costs[b];
     }
 
-    private void reParentNeighborIfNecessary(Point closest, Point neighbor) {
-        Point originalParent = parents.get(neighbor);
-        double currentCost = costToGetTo(neighbor);
-        reParent(neighbor, closest);
-        double reparentCost = costToGetTo(neighbor);
+    private void siftUp(int position) {
+        int index = heap[position];
+
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            int parent = heap[parentPosition];
+            if (!before(index, parent))
+                break;
 
-        if (reparentCost < currentCost)
-            open.remove(neighbor);
-        else
-            reParent(neighbor, originalParent);
+            heap[position] = parent;
+            heapIndex[parent] = position;
+            position = parentPosition;
+        }
+
+        heap[position] = index;
+        heapIndex[index] = position;
     }
 
-    private ArrayList<Point> createPath(Point start, Point end) {
-        ArrayList<Point> path = new ArrayList<Point>();
+    private void siftDown(int position) {
+        int index = heap[position];
+
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= heapSize)
+                break;
 
-        while (!end.equals(start)) {
-            path.add(end);
-            end = parents.get(end);
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child]))
+                child++;
+
+            if (!before(heap[child], index))
+                break;
+
+            heap[position] = heap[child];
+            heapIndex[heap[child]] = position;
+            position = child;
         }
 
-        Collections.reverse(path);
-        return path;
+        heap[position] = index;
+        heapIndex[index] = position;
     }
 }
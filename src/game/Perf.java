@@ -0,0 +1,176 @@
+package game;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Where does a turn's time go? Perf keeps a Histogram for each of the things that happen every turn or every frame:
+ * the world's update, each kind of creature ai, path searches, the field of view, drawing the PlayScreen, and painting
+ * the CharacterPanel. They can be shown in game (press 'p' on the PlayScreen, see PerfScreen) and/or written to a log
+ * file every so often (run with --perf-log <file>).
+ *
+ * Timing something looks like this:
+ *
+ *      long start = Perf.start();
+ *      ... the work ...
+ *      Perf.stop(Perf.FIELD_OF_VIEW, start);
+ *
+ * Nobody wants to pay for this while they're just playing, so nothing is measured until something asks for it with
+ * enable(). While it's off start() is a single check of a flag and returns 0, and stop() does nothing with a 0, so the
+ * calls can stay in the hot paths for good.
+ */
+public final class Perf {
+    private static final LinkedHashMap<String, Histogram> histograms = new LinkedHashMap<String, Histogram>();
+
+    public static final Histogram WORLD_UPDATE = histogram("world.update", Histogram.Unit.NANOSECONDS);
+    public static final Histogram PATH_TIME = histogram("path.time", Histogram.Unit.NANOSECONDS);
+    public static final Histogram PATH_NODES = histogram("path.nodes", Histogram.Unit.COUNT);
+    public static final Histogram PATH_LENGTH = histogram("path.length", Histogram.Unit.COUNT);
+    public static final Histogram FIELD_OF_VIEW = histogram("fov.update", Histogram.Unit.NANOSECONDS);
+    public static final Histogram DISPLAY = histogram("screen.display", Histogram.Unit.NANOSECONDS);
+    public static final Histogram PAINT = histogram("panel.paint", Histogram.Unit.NANOSECONDS);
+
+    /**
+     * How many things (the overlay, the log) want measurements. Measuring is on while anybody does.
+     */
+    private static int users;
+    private static volatile boolean enabled;
+
+    private Perf() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void enable() {
+        users++;
+        enabled = true;
+    }
+
+    public static synchronized void disable() {
+        if (users > 0)
+            users--;
+        enabled = users > 0;
+    }
+
+    /**
+     * The histogram with the given name, made the first time somebody asks for it.
+     *
+     * @param name
+     * @param unit
+     * @return
+     */
+    public static Histogram histogram(String name, Histogram.Unit unit) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram(name, unit);
+                histograms.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Every histogram's numbers right now, in the order the histograms were made.
+     *
+     * @return
+     */
+    public static List<Histogram.Snapshot> snapshot() {
+        List<Histogram> all;
+        synchronized (histograms) {
+            all = new ArrayList<Histogram>(histograms.values());
+        }
+
+        List<Histogram.Snapshot> snapshots = new ArrayList<Histogram.Snapshot>(all.size());
+        for (Histogram histogram : all)
+            snapshots.add(histogram.snapshot());
+        return snapshots;
+    }
+
+    /**
+     * @return the time to pass to stop, or 0 if we're not measuring
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(Histogram histogram, long start) {
+        if (start != 0L)
+            histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Record a count (like how many locations a path search looked at) if we're measuring.
+     */
+    public static void count(Histogram histogram, long value) {
+        if (enabled)
+            histogram.record(value);
+    }
+
+    /**
+     * Append everything to a file every few seconds for as long as the game runs. The file gets a block of lines per
+     * dump, each starting with the time so it's easy to pick out one stretch of play.
+     *
+     * @param file
+     * @param seconds
+     */
+    public static void logTo(final File file, final int seconds) {
+        enable();
+
+        Thread logger = new Thread(new Runnable() {
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(seconds * 1000L);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    try {
+                        dump(file);
+                    } catch (IOException e) {
+                        System.err.println("Couldn't write performance log " + file + ": " + e.getMessage());
+                        return;
+                    }
+                }
+            }
+        }, "perf log");
+        logger.setDaemon(true);
+        logger.start();
+    }
+
+    private static void dump(File file) throws IOException {
+        String time = new Date().toString();
+
+        PrintWriter out = new PrintWriter(new FileWriter(file, true));
+        try {
+            for (Histogram.Snapshot snapshot : snapshot()) {
+                if (snapshot.count() > 0)
+                    out.println(time + "  " + snapshot);
+            }
+            out.println();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Look for --perf-log <file> in the command line and start logging if it's there.
+     *
+     * @param args
+     */
+    public static void logIfAsked(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--perf-log"))
+                logTo(new File(args[i + 1]), 10);
+        }
+    }
+}
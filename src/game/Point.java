@@ -1,7 +1,6 @@
 package game;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -61,11 +60,13 @@ public class Point {
      * easier if we can just ask a point for a list of it's eight neighbors.
      *
      * We shuffle the list before returning it so we don't introduce bias. Otherwise the upper left neighbor would
-     * always be checked first and the lower right would be last which may lead to some odd things.
+     * always be checked first and the lower right would be last which may lead to some odd things. The shuffle uses
+     * the caller's Rng so the order is the same every time the same world is played.
      *
+     * @param rng
      * @return
      */
-    public List<Point> neighbors8(){
+    public List<Point> neighbors8(Rng rng){
         List<Point> points = new ArrayList<Point>();
 
         for (int ox = -1; ox < 2; ox++){
@@ -80,7 +81,7 @@ public class Point {
             }
         }
 
-        Collections.shuffle(points);
+        rng.shuffle(points);
         return points;
     }
 }
\ No newline at end of file
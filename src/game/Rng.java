@@ -0,0 +1,142 @@
+package game;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Everything used to roll its dice with Math.random(). That works, but every call in the whole program goes through
+ * one shared generator, so two threads building levels at the same time fight over it, and there's no way to play the
+ * same world twice.
+ *
+ * An Rng is a seeded random number generator. A world gets one seed, and every part of the game asks for its own
+ * named stream, "builder" or "items" for example. A stream's numbers only depend on the seed and its name, so adding a
+ * few more dice rolls to the item code doesn't change how the caves get built. Asking for the same name twice gives
+ * back the same stream so two item factories don't roll the exact same numbers.
+ *
+ * An Rng isn't safe to share between threads. Code that runs in parallel should split off a stream for each task
+ * before it starts; split streams are independent of each other and of the one they came from.
+ *
+ * It's built on SplittableRandom, which is fast, has no locking, and was made for exactly this kind of splitting.
+ * https://docs.oracle.com/javase/8/docs/api/java/util/SplittableRandom.html
+ */
+public class Rng {
+    private long seed;
+    private SplittableRandom random;
+    private HashMap<String, Rng> streams;
+
+    /**
+     * A new Rng with a seed nobody's picked.
+     */
+    public Rng() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    public Rng(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    private Rng(long seed, SplittableRandom random) {
+        this.seed = seed;
+        this.random = random;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * The stream with the given name. It's worked out from this Rng's seed and the name only, never from how many
+     * numbers have been rolled so far.
+     *
+     * @param name
+     * @return
+     */
+    public Rng stream(String name) {
+        if (streams == null)
+            streams = new HashMap<String, Rng>();
+
+        Rng stream = streams.get(name);
+        if (stream == null) {
+            stream = new Rng(mix(seed + 0x9E3779B97F4A7C15L * (name.hashCode() + 1L)));
+            streams.put(name, stream);
+        }
+        return stream;
+    }
+
+    /**
+     * A new, independent Rng for a task running on another thread.
+     *
+     * @return
+     */
+    public Rng split() {
+        SplittableRandom split = random.split();
+        return new Rng(seed, split);
+    }
+
+    /**
+     * A number from 0 up to, but not including, bound. To keep things simple for the game code (which used to do
+     * (int)(Math.random() * bound)) a bound of zero or less always gives 0.
+     *
+     * @param bound
+     * @return
+     */
+    public int nextInt(int bound) {
+        return bound > 0 ? random.nextInt(bound) : 0;
+    }
+
+    /**
+     * A number from origin up to, but not including, bound.
+     *
+     * @param origin
+     * @param bound
+     * @return
+     */
+    public int nextInt(int origin, int bound) {
+        return origin < bound ? random.nextInt(origin, bound) : origin;
+    }
+
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    /**
+     * True with the given probability.
+     *
+     * @param probability
+     * @return
+     */
+    public boolean chance(double probability) {
+        return random.nextDouble() < probability;
+    }
+
+    /**
+     * Collections.shuffle only takes a java.util.Random so this is the same Fisher-Yates shuffle it does.
+     * https://en.wikipedia.org/wiki/Fisher%E2%80%93Yates_shuffle
+     *
+     * @param list
+     */
+    public <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            T swap = list.get(i);
+            list.set(i, list.get(j));
+            list.set(j, swap);
+        }
+    }
+
+    /**
+     * Scramble a seed so similar seeds (like a seed plus one) give completely different streams. This is the finalizer
+     * from MurmurHash3.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
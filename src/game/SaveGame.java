@@ -0,0 +1,780 @@
+package game;
+
+import game.creatures.Creature;
+import game.creatures.CreatureAi;
+import game.creatures.CreatureFactory;
+import game.creatures.FieldOfView;
+import game.items.Effect;
+import game.items.Item;
+import game.items.ItemFactory;
+import game.items.Spell;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Saving and loading a game. Quitting used to throw everything away: the world, everyone in it, what they're carrying,
+ * and what the player has seen so far.
+ *
+ * A save file is a little header followed by sections. Each section is deflated on its own and starts with how long it
+ * is before and after, so loading knows exactly how much to read and how big to make the array it inflates into:
+ *
+ *   int magic, int version, int width, int height, int depth, long seed
+ *   one section per level of world tiles, width * height tile ordinals
+ *   one section per level of what the player remembers seeing, the same way
+ *   one section for everything else: the player, the world's creatures and items, and the turn
+ *
+ * Caves compress really well, long runs of wall with some floor, so a level usually ends up a small fraction of its
+ * size. Writing goes through a FileChannel to a scratch file that's then renamed over the old save, so quitting in the
+ * middle of saving never leaves a broken save behind.
+ *
+ * The last section is written with a Writer. Names (of creatures, items, spells, effects, ais) repeat a lot, so each
+ * one is only written the first time and after that it's just a number. Items and creatures work the same way:
+ * the first time one shows up, wherever that is, the whole thing is written, and after that it's just its number. So
+ * an item that's both in a goblin's inventory and its hand comes back as one item, not two.
+ *
+ * Since version 2 the first time something's written it's written as -2 minus its number, rather than the numbers just
+ * counting up as things show up. The Journal writes snapshots from its own copy of the game, which has forgotten
+ * whatever died or got eaten since, and everything left has to keep the number it had so the journal after it still
+ * makes sense. Version 1 files still load.
+ *
+ * Dice can't be saved (SplittableRandom keeps its state to itself) so a loaded world rolls from a new stream worked
+ * out from its seed and the turn it was saved on. The same save always plays out the same way, but not quite the way
+ * the game would have gone if it had never been saved.
+ *
+ * When something is added to the game that needs saving, bump VERSION. Loading refuses a file from a newer version
+ * rather than guess at what it means.
+ */
+public class SaveGame {
+    private static final int MAGIC = 0x54424453; // "TBDS"
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+
+    public static final File DEFAULT_FILE = new File(System.getProperty("user.home"), "tempted-by-dragons.save");
+
+    private SaveGame() {
+    }
+
+    public static boolean exists(File file) {
+        return file.isFile();
+    }
+
+    /**
+     * Write the whole game to a file, replacing whatever was there.
+     *
+     * @param game
+     * @param file
+     * @throws IOException
+     */
+    public static void save(NewGame game, File file) throws IOException {
+        write(game, new Writer(), file);
+    }
+
+    /**
+     * Write a game to a file with out, replacing whatever was there. Whatever out writes is numbered from here on, so
+     * a Journal can keep writing with it afterwards and the numbers still mean the same things.
+     *
+     * The tiles go through one level-sized array a level at a time, so a world that's mostly out on disk (see
+     * ChunkedTiles) doesn't have to all fit in memory at once just to be saved. The game mustn't change while this is
+     * going on, but it can be any game on any thread, which is how the Journal saves its own copy of the game without
+     * making the real one wait.
+     *
+     * @param game
+     * @param out
+     * @param file
+     * @throws IOException
+     */
+    static void write(NewGame game, Writer out, File file) throws IOException {
+        World world = game.world();
+        File scratch = new File(file.getPath() + ".tmp");
+
+        FileOutputStream stream = new FileOutputStream(scratch);
+        try {
+            FileChannel channel = stream.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(world.width()).putInt(world.height()).putInt(world.depth());
+            header.putLong(world.seed());
+            header.flip();
+            writeFully(channel, header);
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                byte[] level = new byte[world.width() * world.height()];
+                for (int z = 0; z < world.depth(); z++) {
+                    world.tiles().getLevel(z, level, 0);
+                    writeSection(channel, deflater, level, level.length);
+                }
+                for (int z = 0; z < world.depth(); z++) {
+                    game.fov().memory().getLevel(z, level, 0);
+                    writeSection(channel, deflater, level, level.length);
+                }
+
+                out.writeNames();
+                out.writeName(game.fov().algorithm().name());
+                out.writeCreature(game.player());
+                world.write(out);
+                byte[] everythingElse = out.take();
+                writeSection(channel, deflater, everythingElse, everythingElse.length);
+            } finally {
+                deflater.end();
+            }
+
+            channel.force(false);
+        } finally {
+            stream.close();
+        }
+
+        // One atomic move, so there's always either the old save or the new one and never neither.
+        Files.move(scratch.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a game back in, ready to hand to a PlayScreen. It comes with a Journal that knows everything in it by the
+     * numbers it was saved with, so autosaving can carry on from here without writing the whole game out first.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static NewGame load(File file) throws IOException {
+        Reader in = read(file);
+        NewGame game = in.game();
+        game.setJournal(Journal.follow(in, game, file, null));
+        return game;
+    }
+
+    /**
+     * Load a file and hand back the Reader that read it, which has the game and is ready to keep reading anything
+     * written after it with the same Writer (see Journal).
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static Reader read(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException(file + " isn't a saved game.");
+            int version = header.getInt();
+            if (version > VERSION)
+                throw new IOException(file + " was saved by a newer version (" + version + ") than this one (" + VERSION + ").");
+            int width = header.getInt();
+            int height = header.getInt();
+            int depth = header.getInt();
+            long seed = header.getLong();
+
+            Inflater inflater = new Inflater();
+            ChunkedTiles tiles = null;
+            FieldOfView fov = null;
+            boolean loaded = false;
+            try {
+                tiles = new ChunkedTiles(width, height, depth,
+                        ChunkedTiles.filledWith(Tile.WALL), World.MAX_RESIDENT_CHUNKS);
+                byte[] level = new byte[width * height];
+                for (int z = 0; z < depth; z++) {
+                    readSection(channel, inflater, level);
+                    tiles.setLevel(z, level, 0);
+                }
+
+                World world = new World(tiles, new Rng(seed));
+                List<String> messages = new ArrayList<String>();
+                fov = new FieldOfView(world);
+                for (int z = 0; z < depth; z++) {
+                    readSection(channel, inflater, level);
+                    fov.memory().setLevel(z, level, 0);
+                }
+
+                Reader in = new Reader(readSection(channel, inflater, null), version, world, messages, fov);
+                if (version >= 2)
+                    in.readNames();
+                fov.setAlgorithm(FieldOfView.Algorithm.valueOf(in.readName()));
+                Creature player = in.readCreature();
+                world.read(in);
+                world.setFocus(player);
+
+                loaded = true;
+                return in;
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " is damaged.", e);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(file + " ended early.", e);
+            } finally {
+                inflater.end();
+                // Whatever got as far as a scratch file before things went wrong shouldn't be left behind.
+                if (!loaded) {
+                    if (tiles != null)
+                        tiles.close();
+                    if (fov != null)
+                        fov.close();
+                }
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void writeSection(FileChannel channel, Deflater deflater, byte[] data, int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+
+        byte[] compressed = new byte[Math.max(64, length / 4)];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                byte[] bigger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, bigger, 0, size);
+                compressed = bigger;
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        ByteBuffer lengths = ByteBuffer.allocate(8);
+        lengths.putInt(length).putInt(size);
+        lengths.flip();
+        writeFully(channel, lengths);
+        writeFully(channel, ByteBuffer.wrap(compressed, 0, size));
+    }
+
+    /**
+     * Read a section into into, or a new array of the right size if into is null.
+     */
+    private static byte[] readSection(FileChannel channel, Inflater inflater, byte[] into) throws IOException {
+        ByteBuffer lengths = ByteBuffer.allocate(8);
+        readFully(channel, lengths);
+        lengths.flip();
+        int length = lengths.getInt();
+        int size = lengths.getInt();
+
+        if (into == null)
+            into = new byte[length];
+        else if (into.length != length)
+            throw new IOException("A section is " + length + " bytes, expected " + into.length + ".");
+
+        byte[] compressed = new byte[size];
+        readFully(channel, ByteBuffer.wrap(compressed));
+
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int read = 0;
+            while (read < length && !inflater.finished())
+                read += inflater.inflate(into, read, length - read);
+            if (read != length)
+                throw new IOException("A section ended " + (length - read) + " bytes early.");
+        } catch (DataFormatException e) {
+            throw new IOException("A section is damaged.", e);
+        }
+        return into;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("The file ended early.");
+        }
+    }
+
+    /**
+     * Writes the everything-else section. Besides plain numbers it knows how to write names, items, creatures, and
+     * effects so each is only written in full once.
+     *
+     * A big world has a million or so rocks lying around, so this writes straight into a ByteBuffer rather than
+     * through a DataOutputStream, where every int is four synchronized calls.
+     */
+    public static class Writer {
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private HashMap<String, Integer> names = new HashMap<String, Integer>();
+        private IdentityHashMap<Item, Integer> items = new IdentityHashMap<Item, Integer>();
+        private IdentityHashMap<Creature, Integer> creatures = new IdentityHashMap<Creature, Integer>();
+        private int nextName;
+        private int nextItem;
+        private int nextCreature;
+
+        // Only when writing things again (see below): which ones have been written in full this time around.
+        private HashSet<String> namesWritten;
+        private Set<Object> written;
+
+        Writer() {
+        }
+
+        /**
+         * A Writer that numbers everything the way in did. If again is false it carries on from where in left off,
+         * as if it had written everything in read itself, which is how the Journal keeps going with a game that was
+         * loaded. If again is true it writes everything in full again the first time it comes up, under the number
+         * in knows it by, which is how the Journal writes a snapshot of its copy of the game. Then there's no such
+         * thing as something new, so that's an IllegalStateException.
+         *
+         * @param in
+         * @param again
+         */
+        Writer(Reader in, boolean again) {
+            for (int i = 0; i < in.names.size(); i++) {
+                if (in.names.get(i) != null)
+                    names.put(in.names.get(i), i);
+            }
+            for (int i = 0; i < in.items.size(); i++) {
+                if (in.items.get(i) != null)
+                    items.put(in.items.get(i), i);
+            }
+            for (int i = 0; i < in.creatures.size(); i++) {
+                if (in.creatures.get(i) != null)
+                    creatures.put(in.creatures.get(i), i);
+            }
+            nextName = in.names.size();
+            nextItem = in.items.size();
+            nextCreature = in.creatures.size();
+
+            if (again) {
+                namesWritten = new HashSet<String>();
+                written = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            }
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        /**
+         * Forget everything written since position. Only safe when what's being forgotten didn't write anything in
+         * full for the first time, since that won't be written again.
+         */
+        void rewind(int position) {
+            buffer.position(position);
+        }
+
+        byte[] since(int position) {
+            byte[] bytes = new byte[buffer.position() - position];
+            System.arraycopy(buffer.array(), position, bytes, 0, bytes.length);
+            return bytes;
+        }
+
+        /**
+         * Everything written so far, emptying the buffer for whatever comes next. The numbering carries on.
+         */
+        byte[] take() {
+            byte[] bytes = since(0);
+            buffer.clear();
+            return bytes;
+        }
+
+        boolean knows(Creature creature) {
+            return creatures.containsKey(creature);
+        }
+
+        private ByteBuffer room(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+            return buffer;
+        }
+
+        public void writeBoolean(boolean value) throws IOException {
+            room(1).put(value ? (byte)1 : (byte)0);
+        }
+
+        public void writeByte(byte value) throws IOException {
+            room(1).put(value);
+        }
+
+        public void writeChar(char value) throws IOException {
+            room(2).putChar(value);
+        }
+
+        public void writeInt(int value) throws IOException {
+            room(4).putInt(value);
+        }
+
+        public void writeLong(long value) throws IOException {
+            room(8).putLong(value);
+        }
+
+        /**
+         * A name's number, or -2 minus its number followed by the name itself if this is the first time it's been
+         * written. Null is -1.
+         */
+        public void writeName(String name) throws IOException {
+            if (name == null) {
+                writeInt(-1);
+                return;
+            }
+
+            Integer number = names.get(name);
+            if (number == null) {
+                if (namesWritten != null)
+                    throw new IllegalStateException("There's no number for the name " + name + ".");
+                number = nextName++;
+                names.put(name, number);
+            } else if (namesWritten == null || !namesWritten.add(name)) {
+                writeInt(number);
+                return;
+            }
+
+            writeInt(-2 - number);
+            byte[] utf = name.getBytes(StandardCharsets.UTF_8);
+            room(4 + utf.length).putInt(utf.length).put(utf);
+        }
+
+        /**
+         * Every name this Writer has a number for, so whatever's read after this can use any of them. A fresh Writer
+         * doesn't know any yet. When writing again it's every name the game's ever used, even ones nothing has
+         * anymore, since the journal after a snapshot can still bring them back up just by number.
+         */
+        void writeNames() throws IOException {
+            writeInt(names.size());
+            for (String name : names.keySet())
+                writeName(name);
+        }
+
+        public void writeColor(Color color) throws IOException {
+            writeInt(color.getRGB());
+        }
+
+        public void writeItem(Item item) throws IOException {
+            if (item == null) {
+                writeInt(-1);
+                return;
+            }
+
+            Integer number = items.get(item);
+            if (number == null) {
+                if (written != null)
+                    throw new IllegalStateException("There's no number for " + item.name() + ".");
+                number = nextItem++;
+                items.put(item, number);
+            } else if (written == null || !written.add(item)) {
+                writeInt(number);
+                return;
+            }
+
+            writeInt(-2 - number);
+            writeChar(item.glyph());
+            writeColor(item.color());
+            writeName(item.name());
+            writeInt(item.foodValue());
+            writeInt(item.attackValue());
+            writeInt(item.defenseValue());
+            writeInt(item.thrownAttackValue());
+            writeInt(item.rangedAttackValue());
+            writeEffect(item.quaffEffect());
+
+            writeInt(item.writtenSpells().size());
+            for (Spell spell : item.writtenSpells()) {
+                writeName(spell.name());
+                writeInt(spell.manaCost());
+                writeEffect(spell.effect());
+                writeBoolean(spell.requiresTarget());
+            }
+        }
+
+        public void writeCreature(Creature creature) throws IOException {
+            if (creature == null) {
+                writeInt(-1);
+                return;
+            }
+
+            Integer number = creatures.get(creature);
+            if (number == null) {
+                if (written != null)
+                    throw new IllegalStateException("There's no number for " + creature.name() + ".");
+                number = nextCreature++;
+                creatures.put(creature, number);
+            } else if (written == null || !written.add(creature)) {
+                writeInt(number);
+                return;
+            }
+
+            writeInt(-2 - number);
+            writeChar(creature.glyph());
+            writeColor(creature.color());
+            writeName(creature.name());
+            creature.write(this);
+        }
+
+        /**
+         * Like writeCreature, except a creature that's already been written gets written in full again. That's how
+         * the Journal keeps up with creatures that have changed. Null writes -1.
+         */
+        public void writeCreatureState(Creature creature) throws IOException {
+            if (creature == null || !creatures.containsKey(creature)) {
+                writeCreature(creature);
+                return;
+            }
+
+            writeInt(creatures.get(creature));
+            creature.write(this);
+        }
+
+        /**
+         * An effect's id and how long it has left. See Effect for why it's an id.
+         */
+        public void writeEffect(Effect effect) throws IOException {
+            if (effect == null) {
+                writeBoolean(false);
+                return;
+            }
+
+            writeBoolean(true);
+            writeName(effect.id());
+            writeInt(effect.duration());
+        }
+
+        /**
+         * Which kind of ai a creature has, see CreatureFactory.newAi.
+         */
+        public void writeAi(CreatureAi ai) throws IOException {
+            writeName(ai.getClass().getSimpleName());
+            ai.write(this);
+        }
+    }
+
+    /**
+     * Reads what a Writer wrote, and has what's needed to put creatures, their ais, and effects back together.
+     */
+    public static class Reader {
+        private ByteBuffer buffer;
+        private List<String> names = new ArrayList<String>();
+        private List<Item> items = new ArrayList<Item>();
+        private List<Creature> creatures = new ArrayList<Creature>();
+        private HashMap<Integer, Color> colors = new HashMap<Integer, Color>();
+        private int version;
+
+        private World world;
+        private List<String> messages;
+        private FieldOfView fov;
+        private CreatureFactory creatureFactory;
+        private ItemFactory itemFactory;
+
+        private Reader(byte[] bytes, int version, World world, List<String> messages, FieldOfView fov) {
+            this.buffer = ByteBuffer.wrap(bytes);
+            this.version = version;
+            this.world = world;
+            this.messages = messages;
+            this.fov = fov;
+            this.creatureFactory = new CreatureFactory(world);
+            this.itemFactory = new ItemFactory(world);
+        }
+
+        public World world() {
+            return world;
+        }
+
+        NewGame game() {
+            return new NewGame(world, creatures.get(0), messages, fov);
+        }
+
+        /**
+         * Carry on reading from some more bytes, remembering all the names, items, and creatures read so far.
+         */
+        void continueWith(byte[] bytes) {
+            buffer = ByteBuffer.wrap(bytes);
+        }
+
+        public boolean readBoolean() throws IOException {
+            return buffer.get() != 0;
+        }
+
+        public byte readByte() throws IOException {
+            return buffer.get();
+        }
+
+        public char readChar() throws IOException {
+            return buffer.getChar();
+        }
+
+        public int readInt() throws IOException {
+            return buffer.getInt();
+        }
+
+        public long readLong() throws IOException {
+            return buffer.getLong();
+        }
+
+        /**
+         * If number means something's written in full right after it, which number that something gets, or -1 if it's
+         * just the number of something read before. Version 1 didn't have the -2 minus its number, the next thing was
+         * simply the next number.
+         */
+        private int firstTime(int number, List<?> known) {
+            if (number <= -2)
+                return -2 - number;
+            if (version == 1 && number == known.size())
+                return number;
+            return -1;
+        }
+
+        private static <T> void put(List<T> known, int number, T thing) {
+            while (known.size() <= number)
+                known.add(null);
+            known.set(number, thing);
+        }
+
+        private static <T> T get(List<T> known, int number, String what) throws IOException {
+            T thing = number < known.size() ? known.get(number) : null;
+            if (thing == null)
+                throw new IOException(what + " " + number + " is used before it's written.");
+            return thing;
+        }
+
+        public String readName() throws IOException {
+            int number = readInt();
+            if (number == -1)
+                return null;
+
+            int first = firstTime(number, names);
+            if (first < 0)
+                return get(names, number, "Name");
+
+            byte[] utf = new byte[readInt()];
+            buffer.get(utf);
+            String name = new String(utf, StandardCharsets.UTF_8);
+            put(names, first, name);
+            return name;
+        }
+
+        /**
+         * The other half of writeNames.
+         */
+        void readNames() throws IOException {
+            int count = readInt();
+            for (int i = 0; i < count; i++)
+                readName();
+        }
+
+        /**
+         * Colors are shared, since every rock having its own gray adds up on a big world.
+         */
+        public Color readColor() throws IOException {
+            int rgb = readInt();
+            Color color = colors.get(rgb);
+            if (color == null) {
+                color = new Color(rgb, true);
+                colors.put(rgb, color);
+            }
+            return color;
+        }
+
+        public Item readItem() throws IOException {
+            int number = readInt();
+            if (number == -1)
+                return null;
+
+            int first = firstTime(number, items);
+            if (first < 0)
+                return get(items, number, "Item");
+
+            Item item = new Item(readChar(), readColor(), readName());
+            put(items, first, item);
+
+            item.modifyFoodValue(readInt());
+            item.modifyAttackValue(readInt());
+            item.modifyDefenseValue(readInt());
+            item.modifyThrownAttackValue(readInt());
+            item.modifyRangedAttackValue(readInt());
+            item.setQuaffEffect(readEffect());
+
+            int spells = readInt();
+            for (int i = 0; i < spells; i++)
+                item.addWrittenSpell(readName(), readInt(), readEffect(), readBoolean());
+
+            return item;
+        }
+
+        /**
+         * The first creature read is the player, the one everyone else's ai is after.
+         */
+        public Creature readCreature() throws IOException {
+            int number = readInt();
+            if (number == -1)
+                return null;
+
+            int first = firstTime(number, creatures);
+            if (first < 0)
+                return get(creatures, number, "Creature");
+
+            Creature creature = new Creature(world, readChar(), readColor(), readName(), 0, 0, 0, 0);
+            put(creatures, first, creature);
+            creature.read(this);
+            return creature;
+        }
+
+        /**
+         * The other half of writeCreatureState. A creature that's been read before gets everything but its glyph,
+         * color, and name read in again.
+         */
+        public Creature readCreatureState() throws IOException {
+            Creature creature = peekCreature();
+            if (creature == null)
+                return readCreature();
+
+            readInt();
+            creature.read(this);
+            return creature;
+        }
+
+        /**
+         * The creature that's next, if it's one that's been read before, without reading it.
+         */
+        Creature peekCreature() {
+            int number = buffer.getInt(buffer.position());
+            return number >= 0 && number < creatures.size() ? creatures.get(number) : null;
+        }
+
+        public Effect readEffect() throws IOException {
+            if (!readBoolean())
+                return null;
+
+            String id = readName();
+            int duration = readInt();
+
+            Effect effect = id == null ? new Effect(duration) : itemFactory.newEffect(id);
+            if (effect == null)
+                throw new IOException("There's no effect called " + id + ".");
+            effect.setDuration(duration);
+            return effect;
+        }
+
+        public CreatureAi readAi(Creature creature) throws IOException {
+            String kind = readName();
+            CreatureAi ai = creatureFactory.newAi(kind, creature, creatures.get(0), messages, fov);
+            if (ai == null)
+                throw new IOException("There's no ai called " + kind + ".");
+            ai.read(this);
+            return ai;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package game;
+
+import characterPanel.AnsiRenderer;
+import game.screens.Screen;
+import game.screens.StartScreen;
+
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Play in a text terminal instead of a window, for example over SSH. This does the same thing as ApplicationMain: show
+ * the current screen, wait for a key, and hand the key to the screen. The screens draw on an AnsiRenderer and only the
+ * cells that changed get sent to the terminal.
+ *
+ * The terminal has to be put in raw mode so we get each key as it's pressed instead of a line at a time. We ask stty
+ * to do that and to put things back when we're done. Press ctrl-c to quit. Like ApplicationMain, --perf-log <file>
+ * writes performance numbers to a file every few seconds.
+ *
+ * The screens expect Swing KeyEvents so we make them up from the characters we read. KeyEvents need a source Component
+ * but nobody ever looks at it, so it's just a Canvas that never gets shown.
+ */
+public class TerminalMain {
+    private static final int CTRL_C = 3;
+    private static final int CTRL_D = 4;
+    private static final int ESCAPE = 27;
+
+    private static Component source = new Canvas();
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Perf.logIfAsked(args);
+
+        AnsiRenderer terminal = new AnsiRenderer(Screen.SCREEN_WIDTH+1, Screen.SCREEN_HEIGHT+1, System.out);
+        Screen screen = new StartScreen();
+
+        stty("raw -echo");
+        try {
+            while (true) {
+                terminal.clear();
+                screen.displayOutput(terminal);
+                terminal.flush();
+
+                KeyEvent key = readKey(System.in);
+                if (key == null)
+                    break;
+
+                screen = screen.respondToUserInput(key);
+            }
+        } finally {
+            terminal.reset();
+            stty("sane");
+        }
+    }
+
+    private static void stty(String mode) {
+        try {
+            new ProcessBuilder("sh", "-c", "stty " + mode + " < /dev/tty").inheritIO().start().waitFor();
+        } catch (Exception e) {
+            System.err.println("Couldn't set the terminal to " + mode + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read one key press. Arrow keys and friends arrive as escape sequences (ESC [ A is up, for example); an escape on
+     * its own is the escape key.
+     *
+     * @param in
+     * @return the key, or null if it's time to quit
+     * @throws IOException
+     */
+    private static KeyEvent readKey(InputStream in) throws IOException {
+        int c = in.read();
+        if (c == -1 || c == CTRL_C || c == CTRL_D)
+            return null;
+
+        if (c == ESCAPE) {
+            if (in.available() == 0 || in.read() != '[')
+                return key(KeyEvent.VK_ESCAPE, (char)ESCAPE, 0);
+
+            switch (in.read()) {
+                case 'A': return key(KeyEvent.VK_UP, KeyEvent.CHAR_UNDEFINED, 0);
+                case 'B': return key(KeyEvent.VK_DOWN, KeyEvent.CHAR_UNDEFINED, 0);
+                case 'C': return key(KeyEvent.VK_RIGHT, KeyEvent.CHAR_UNDEFINED, 0);
+                case 'D': return key(KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED, 0);
+                case 'H': return key(KeyEvent.VK_HOME, KeyEvent.CHAR_UNDEFINED, 0);
+                case 'F': return key(KeyEvent.VK_END, KeyEvent.CHAR_UNDEFINED, 0);
+                case '5': in.read(); return key(KeyEvent.VK_PAGE_UP, KeyEvent.CHAR_UNDEFINED, 0);
+                case '6': in.read(); return key(KeyEvent.VK_PAGE_DOWN, KeyEvent.CHAR_UNDEFINED, 0);
+                default:  return key(KeyEvent.VK_UNDEFINED, KeyEvent.CHAR_UNDEFINED, 0);
+            }
+        }
+
+        char character = (char)c;
+
+        if (character >= 'a' && character <= 'z')
+            return key(KeyEvent.VK_A + (character - 'a'), character, 0);
+        if (character >= 'A' && character <= 'Z')
+            return key(KeyEvent.VK_A + (character - 'A'), character, InputEvent.SHIFT_DOWN_MASK);
+        if (character >= '0' && character <= '9')
+            return key(KeyEvent.VK_0 + (character - '0'), character, 0);
+
+        switch (character) {
+            case '\r':
+            case '\n': return key(KeyEvent.VK_ENTER, '\n', 0);
+            case ' ':  return key(KeyEvent.VK_SPACE, character, 0);
+            case ';':  return key(KeyEvent.VK_SEMICOLON, character, 0);
+            case ',':  return key(KeyEvent.VK_COMMA, character, 0);
+            case '.':  return key(KeyEvent.VK_PERIOD, character, 0);
+            case '/':  return key(KeyEvent.VK_SLASH, character, 0);
+            case '<':  return key(KeyEvent.VK_COMMA, character, InputEvent.SHIFT_DOWN_MASK);
+            case '>':  return key(KeyEvent.VK_PERIOD, character, InputEvent.SHIFT_DOWN_MASK);
+            case '?':  return key(KeyEvent.VK_SLASH, character, InputEvent.SHIFT_DOWN_MASK);
+            case 8:
+            case 127:  return key(KeyEvent.VK_BACK_SPACE, '\b', 0);
+            default:   return key(KeyEvent.VK_UNDEFINED, character, 0);
+        }
+    }
+
+    private static KeyEvent key(int keyCode, char keyChar, int modifiers) {
+        return new KeyEvent(source, KeyEvent.KEY_PRESSED, System.currentTimeMillis(), modifiers, keyCode, keyChar);
+    }
+}
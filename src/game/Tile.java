@@ -118,6 +118,16 @@ public enum Tile {
         this.details = details;
     }
 
+    /**
+     * The World stores tiles as their ordinal in a byte array. Tile.values() makes a new array every time it's called
+     * so we keep one around to turn those bytes back into tiles.
+     */
+    private static final Tile[] VALUES = values();
+
+    public static Tile fromOrdinal(int ordinal) {
+        return VALUES[ordinal & 0xFF];
+    }
+
     /**
      * Indicate if a tile is diggable. This way we don't even have to know what the tile is we can just care about if
      * it can be dug through. If we later add new tiles, no-dig zones, or something else we just need to update this
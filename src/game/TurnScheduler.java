@@ -0,0 +1,181 @@
+package game;
+
+import game.creatures.Creature;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Originally every creature took exactly one turn each time the world updated. That made fast and slow monsters
+ * awkward (bats just wandered twice, zombies randomly skipped turns) and meant copying the whole creature list every
+ * turn so creatures could be added and removed while we looped over it.
+ *
+ * Instead, each creature gets a time when it next acts. The scheduler keeps them in a priority queue ordered by that
+ * time, and each world update moves the clock forward one turn's worth of ticks and lets whoever is due take a turn.
+ * A normal creature acts every TICKS_PER_TURN ticks, a creature twice as fast acts twice as often, and so on.
+ *
+ * Removing a creature just cancels its entry. It stays in the queue until it comes up, then gets thrown away, so we
+ * never have to search the queue for it.
+ */
+public class TurnScheduler {
+    public static final int TICKS_PER_TURN = 100;
+
+    private static class Turn {
+        private Creature creature;
+        private long time;
+        private long order;
+        private boolean cancelled;
+
+        private Turn(Creature creature) {
+            this.creature = creature;
+        }
+    }
+
+    private Comparator<Turn> order;
+    private PriorityQueue<Turn> queue;
+    private HashMap<Creature, Turn> turns;
+    private long now;
+    private long nextOrder;
+
+    public TurnScheduler() {
+        /**
+         * Creatures due at the same time go in the order they were scheduled, the same order they would have gone in
+         * when everyone just took turns down the list.
+         */
+        this.order = new Comparator<Turn>() {
+            public int compare(Turn a, Turn b) {
+                if (a.time != b.time)
+                    return Long.compare(a.time, b.time);
+                return Long.compare(a.order, b.order);
+            }
+        };
+        this.queue = new PriorityQueue<Turn>(64, order);
+        this.turns = new HashMap<Creature, Turn>();
+    }
+
+    public long now() {
+        return now;
+    }
+
+    public int size() {
+        return turns.size();
+    }
+
+    public boolean contains(Creature creature) {
+        return turns.containsKey(creature);
+    }
+
+    public Collection<Creature> creatures() {
+        return turns.keySet();
+    }
+
+    /**
+     * How many ticks go by between a creature's turns. Never less than one, no matter how fast the creature is, or it
+     * would keep getting turns at the same tick forever and the update would never finish.
+     *
+     * @param creature
+     * @return
+     */
+    public static long delay(Creature creature) {
+        return Math.max(1, (long)TICKS_PER_TURN * Creature.NORMAL_SPEED / Math.max(1, creature.speed()));
+    }
+
+    /**
+     * New creatures act one delay from now, so something created during a turn doesn't also act during that turn.
+     *
+     * @param creature
+     */
+    public void add(Creature creature) {
+        if (turns.containsKey(creature))
+            return;
+
+        Turn turn = new Turn(creature);
+        turns.put(creature, turn);
+        schedule(turn, now + delay(creature));
+    }
+
+    public void remove(Creature creature) {
+        Turn turn = turns.remove(creature);
+        if (turn != null)
+            turn.cancelled = true;
+    }
+
+    /**
+     * Move the clock forward and let every creature whose turn comes up act. Creatures that are removed while this is
+     * going on, including by their own hand, simply don't get rescheduled.
+     *
+     * @param ticks
+     * @return how many turns were taken
+     */
+    public int update(long ticks) {
+        long end = now + ticks;
+        int taken = 0;
+
+        while (!queue.isEmpty() && queue.peek().time <= end) {
+            Turn turn = queue.poll();
+            if (turn.cancelled)
+                continue;
+
+            now = turn.time;
+            turn.creature.update();
+            taken++;
+
+            if (!turn.cancelled)
+                schedule(turn, turn.time + delay(turn.creature));
+        }
+
+        now = end;
+        return taken;
+    }
+
+    private void schedule(Turn turn, long time) {
+        turn.time = time;
+        turn.order = nextOrder++;
+        queue.add(turn);
+    }
+
+    /**
+     * The clock and everyone's next turn, in the order they'll go. Reading them back schedules them in that same
+     * order so ties still go the same way.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(SaveGame.Writer out) throws IOException {
+        List<Turn> live = new ArrayList<Turn>(turns.values());
+        Collections.sort(live, order);
+
+        out.writeLong(now);
+        out.writeInt(live.size());
+        for (Turn turn : live) {
+            out.writeCreature(turn.creature);
+            out.writeLong(turn.time);
+        }
+    }
+
+    /**
+     * @param in
+     * @return the creatures that were scheduled
+     * @throws IOException
+     */
+    public List<Creature> read(SaveGame.Reader in) throws IOException {
+        now = in.readLong();
+
+        int count = in.readInt();
+        List<Creature> creatures = new ArrayList<Creature>(count);
+        for (int i = 0; i < count; i++) {
+            Creature creature = in.readCreature();
+            Turn turn = new Turn(creature);
+            turns.put(creature, turn);
+            schedule(turn, in.readLong());
+            creatures.add(creature);
+        }
+        return creatures;
+    }
+}
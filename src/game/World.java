@@ -1,9 +1,11 @@
 package game;
 
 import game.creatures.Creature;
+import game.events.TurnEvent;
 import game.items.Item;
 
 import java.awt.Color;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,13 +25,27 @@ import java.util.List;
  */
 
 public class World {
-    private Tile[][][] tiles;
+    /**
+     * The tiles are one byte per location holding the tile's ordinal, instead of a Tile[][][]. They used to be one
+     * flat array for the whole world, but that means the whole world has to fit in memory. Now they're kept in 64 by 64
+     * chunks and the ones nobody's been near in a while wait on disk, see ChunkedTiles. The items and the occupancy
+     * grid use the same chunks but only for the parts of the world that have something in them, see ChunkedGrid.
+     */
+    private ChunkedTiles tiles;
+    public ChunkedTiles tiles() {
+        return tiles;
+    }
+
+    /**
+     * How many chunks of tiles to keep in memory, 16 MB worth. A world that fits in that never touches the disk.
+     */
+    public static final int MAX_RESIDENT_CHUNKS = 4096;
 
     /**
      * Instead of a list of all items I'm going to try something different — I'm only going to allow one item per tile.
      * Good idea or bad, let's go ahead with that for now.
      */
-    private Item[][][] items;
+    private ChunkedGrid<Item> items;
 
     private int width;
     public int width() {
@@ -46,15 +62,143 @@ public class World {
         return depth;
     }
 
-    private List<Creature> creatures; // Our world's going to have a bunch of creatures
+    /**
+     * Our world's going to have a bunch of creatures, each taking turns at its own speed. Each level has its own
+     * TurnScheduler so we can run the level the player is on without touching the others (see update).
+     */
+    private TurnScheduler[] creatures;
+
+    /**
+     * Simulating every level every turn gets expensive as the dungeon gets deeper, and nobody's around to see what the
+     * goblins on level 5 are up to anyway. So when the world has a focus (the player) only the focus's level is really
+     * simulated. The other levels are frozen in time until the focus shows up, then they catch up in one cheap step;
+     * creatures regenerate and fungi spread as if the time had passed, but nobody wanders around or hunts anything.
+     *
+     * Without a focus every level is simulated every turn, just like before.
+     */
+    private Creature focus;
+    public void setFocus(Creature focus) {
+        this.focus = focus;
+    }
+
+    private long turn;
+    public long turn() {
+        return turn;
+    }
+
+    private long[] lastSimulated;
+
+    /**
+     * If there's a Journal it hears about every change the world makes, so it can write down just what changed each
+     * turn instead of the whole world.
+     */
+    private Journal journal;
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Let go of the scratch file the tiles spill into, once nobody's going to play in this world again.
+     */
+    public void close() {
+        tiles.close();
+    }
+
+    /**
+     * The world's seed. Everything that happens while playing rolls its dice from rng(), and anything that wants its
+     * own numbers (like the item factory) can ask for a named stream, see Rng.
+     */
+    private Rng seed;
+    private Rng rng;
+    public Rng rng() {
+        return rng;
+    }
+
+    public Rng rng(String name) {
+        return seed.stream(name);
+    }
+
+    public long seed() {
+        return seed.seed();
+    }
+
+    /**
+     * Looking up a creature by walking the whole creature list was fine with a handful of fungi, but creature(x,y,z)
+     * gets called for every cell we draw, every step of every path, and every cell around every action. So we also
+     * keep an occupancy grid, one creature per tile just like the items, and keep it up to date whenever a creature is
+     * added, moved, or removed. The list is still the source of who gets a turn; the grid is only an index.
+     */
+    private ChunkedGrid<Creature> occupants;
+
+    /**
+     * The PathFinder works on flat arrays sized to the level so each world gets its own and reuses it for every search.
+     */
+    private PathFinder pathFinder;
+    public PathFinder pathFinder() {
+        if (pathFinder == null)
+            pathFinder = new PathFinder(width, height);
+        return pathFinder;
+    }
+
+    /**
+     * Most hunting is done by monsters chasing the player, so the world keeps one shared DistanceMap to whatever was
+     * last asked for. It only gets rebuilt when the target has moved or the tiles have changed, which we track by
+     * bumping tileVersion every time a tile changes.
+     */
+    private DistanceMap distanceMap;
+    private int tileVersion;
+    public int tileVersion() {
+        return tileVersion;
+    }
+
+    public DistanceMap distancesTo(int x, int y, int z) {
+        if (distanceMap == null)
+            distanceMap = new DistanceMap(width, height);
+
+        if (!distanceMap.isFor(x, y, z, tileVersion))
+            distanceMap.update(this, x, y, z);
+
+        return distanceMap;
+    }
+
+    public World(int width, int height, int depth, byte[] tiles){
+        this(width, height, depth, tiles, new Rng());
+    }
+
+    public World(int width, int height, int depth, byte[] tiles, Rng seed){
+        this(chunked(width, height, depth, tiles), seed);
+    }
+
+    public World(ChunkedTiles tiles, Rng seed){
+        int width = tiles.width();
+        int height = tiles.height();
+        int depth = tiles.depth();
 
-    public World(Tile[][][] tiles){
         this.tiles = tiles;
-        this.width = tiles.length;
-        this.height = tiles[0].length;
-        this.depth = tiles[0][0].length;
-        this.creatures = new ArrayList<Creature>();
-        this.items = new Item[width][height][depth];
+        this.seed = seed;
+        this.rng = seed.stream("world");
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.creatures = new TurnScheduler[depth];
+        this.lastSimulated = new long[depth];
+        for (int z = 0; z < depth; z++)
+            this.creatures[z] = new TurnScheduler();
+        this.occupants = new ChunkedGrid<Creature>(width, height, depth);
+        this.items = new ChunkedGrid<Item>(width, height, depth);
+    }
+
+    /**
+     * Cut a flat array of tiles, (z * height + y) * width + x, up into chunks.
+     */
+    private static ChunkedTiles chunked(int width, int height, int depth, byte[] tiles) {
+        if (tiles.length != width * height * depth)
+            throw new IllegalArgumentException("tiles.length " + tiles.length + " must be " + width * height * depth + ".");
+
+        ChunkedTiles chunked = new ChunkedTiles(width, height, depth, ChunkedTiles.filledWith(Tile.WALL), MAX_RESIDENT_CHUNKS);
+        for (int z = 0; z < depth; z++)
+            chunked.setLevel(z, tiles, z * width * height);
+        return chunked;
     }
 
     /**
@@ -66,12 +210,52 @@ public class World {
      * @return
      */
     public Creature creature(int x, int y, int z) {
-        for (Creature c : creatures) {
-            if (c.x == x && c.y == y && c.z == z) {
-                return c;
+        if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth)
+            return null;
+
+        return occupants.get(x, y, z);
+    }
+
+    /**
+     * Is the creature actually standing where it says it is? Anything that's been removed from the world (or never
+     * added) won't be in the occupancy grid.
+     *
+     * @param creature
+     * @return
+     */
+    private boolean isPlaced(Creature creature) {
+        return creature(creature.x, creature.y, creature.z) == creature;
+    }
+
+    /**
+     * Creatures should move through here rather than changing their x, y, and z directly so the occupancy grid stays
+     * in sync. A creature that's no longer in the world (e.g. it died earlier this turn but still gets to finish its
+     * update) just has its coordinates changed so it can't end up haunting a tile.
+     *
+     * @param creature
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void move(Creature creature, int x, int y, int z) {
+        if (isPlaced(creature)) {
+            occupants.set(creature.x, creature.y, creature.z, null);
+            occupants.set(x, y, z, creature);
+
+            if (creature.z != z) {
+                creatures[creature.z].remove(creature);
+                arriving(z);
+                creatures[z].add(creature);
+                if (journal != null) {
+                    journal.levelChanged(creature.z);
+                    journal.levelChanged(z);
+                }
             }
         }
-        return null;
+
+        creature.x = x;
+        creature.y = y;
+        creature.z = z;
     }
 
     /**
@@ -83,7 +267,7 @@ public class World {
      * @return
      */
     public Item item(int x, int y, int z){
-        return items[x][y][z];
+        return items.get(x, y, z);
     }
 
     /**
@@ -102,7 +286,7 @@ public class World {
         if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth) {
             return Tile.BOUNDS;
         } else {
-            return tiles[x][y][z];
+            return Tile.fromOrdinal(tiles.get(x, y, z));
         }
     }
 
@@ -139,8 +323,22 @@ public class World {
      * @param y
      */
     public void dig(int x, int y, int z) {
-        if (tile(x,y,z).isDiggable())
-            tiles[x][y][z] = Tile.FLOOR;
+        if (tile(x,y,z).isDiggable()) {
+            setTile(x, y, z, (byte)Tile.FLOOR.ordinal());
+        }
+    }
+
+    void setTile(int x, int y, int z, byte tile) {
+        tiles.set(x, y, z, tile);
+        tileVersion++;
+        if (journal != null)
+            journal.tileChanged(x, y, z);
+    }
+
+    void setItem(int x, int y, int z, Item item) {
+        items.set(x, y, z, item);
+        if (journal != null)
+            journal.itemChanged(x, y, z);
     }
 
     /**
@@ -153,15 +351,26 @@ public class World {
         int x;
         int y;
 
+        arriving(z);
+
         do { // Search for an empty ground tile.
-            x = (int)(Math.random() * width);
-            y = (int)(Math.random() * height);
+            x = rng.nextInt(width);
+            y = rng.nextInt(height);
         } while (!tile(x,y,z).isGround() || creature(x,y,z) != null);
 
+        // Creatures that are already in the world (like summoned ones) just get relocated, not added twice.
+        if (isPlaced(creature)) {
+            move(creature, x, y, z);
+            return;
+        }
+
         creature.x = x;
         creature.y = y;
         creature.z = z;
-        creatures.add(creature);
+        occupants.set(x, y, z, creature);
+        creatures[z].add(creature);
+        if (journal != null)
+            journal.levelChanged(z);
     }
 
     /**
@@ -174,24 +383,84 @@ public class World {
         int y;
 
         do {
-            x = (int)(Math.random() * width);
-            y = (int)(Math.random() * height);
+            x = rng.nextInt(width);
+            y = rng.nextInt(height);
         } while (!tile(x,y,depth).isGround() || item(x,y,depth) != null);
 
-        items[x][y][depth] = item;
+        setItem(x, y, depth, item);
     }
 
     /**
      * Each creature should have something special it does instead of all being the same things with slightly different
      * stats to make things interesting. What if the fungi were able to reproduce and spread? We first need to let each
      * creature know when it's time to update itself and whatever else it wants to do for it's turn. This method lets
-     * each creature know it's time to take a turn.
+     * each creature whose turn has come up take a turn; fast creatures may go more than once and slow ones may sit
+     * this one out.
      */
     public void update(){
-        List<Creature> toUpdate = new ArrayList<Creature>(creatures);
-        for (Creature creature : toUpdate) {
-            creature.update();
+        long start = Perf.start();
+        TurnEvent event = new TurnEvent();
+        event.begin();
+
+        turn++;
+        int updated = 0;
+
+        // Remember where the focus is now; if it takes the stairs during this turn the level it lands on has to wait
+        // until next turn, otherwise it could get a second go at the same turn.
+        int focusZ = focus == null ? -1 : focus.z;
+
+        for (int z = 0; z < depth; z++) {
+            if (focusZ >= 0 && focusZ != z)
+                continue;
+
+            long missed = turn - 1 - lastSimulated[z];
+            if (missed > 0)
+                catchUp(z, missed);
+            lastSimulated[z] = turn;
+
+            updated += creatures[z].update(TurnScheduler.TICKS_PER_TURN);
+            if (journal != null)
+                journal.levelChanged(z);
         }
+
+        Perf.stop(Perf.WORLD_UPDATE, start);
+        if (event.shouldCommit()) {
+            event.turn = turn;
+            event.creaturesUpdated = updated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Let everyone on a level that's been frozen make up for the turns they missed. We copy the creatures first since
+     * catching up can spawn new ones (who catch up on their own). The focus never catches up; it didn't miss anything,
+     * it was busy somewhere else.
+     *
+     * @param z
+     * @param turns
+     */
+    private void catchUp(int z, long turns) {
+        List<Creature> toCatchUp = new ArrayList<Creature>(creatures[z].creatures());
+        for (Creature creature : toCatchUp) {
+            if (creature != focus && isPlaced(creature))
+                creature.catchUp(turns);
+        }
+    }
+
+    /**
+     * Before anyone shows up on a frozen level we bring the level up to date, including this turn. That way the
+     * newcomer isn't around for the catching up and doesn't get credit for turns it spent on another level.
+     *
+     * @param z
+     */
+    private void arriving(int z) {
+        if (focus == null)
+            return;
+
+        long missed = turn - lastSimulated[z];
+        lastSimulated[z] = turn;
+        if (missed > 0)
+            catchUp(z, missed);
     }
 
     /**
@@ -200,7 +469,12 @@ public class World {
      * @param other
      */
     public void remove(Creature other) {
-        creatures.remove(other);
+        if (isPlaced(other))
+            occupants.set(other.x, other.y, other.z, null);
+
+        creatures[other.z].remove(other);
+        if (journal != null)
+            journal.creatureRemoved(other);
     }
 
     /**
@@ -210,7 +484,7 @@ public class World {
      * @param z
      */
     public void remove(int x, int y, int z) {
-        items[x][y][z] = null;
+        setItem(x, y, z, null);
     }
 
     /**
@@ -219,16 +493,9 @@ public class World {
      * @param item
      */
     public void remove(Item item) {
-        for (int x = 0; x < width; x++){
-            for (int y = 0; y < height; y++){
-                for (int z = 0; z < depth; z++){
-                    if (items[x][y][z] == item) {
-                        items[x][y][z] = null;
-                        return;
-                    }
-                }
-            }
-        }
+        Point p = items.remove(item);
+        if (p != null && journal != null)
+            journal.itemChanged(p.x, p.y, p.z);
     }
 
     /**
@@ -260,14 +527,14 @@ public class World {
             if (!tile(p.x, p.y, p.z).isGround())
                 continue;
 
-            if (items[p.x][p.y][p.z] == null){
-                items[p.x][p.y][p.z] = item;
+            if (items.get(p.x, p.y, p.z) == null){
+                setItem(p.x, p.y, p.z, item);
                 Creature c = this.creature(p.x, p.y, p.z);
                 if (c != null)
                     c.notify("A %s lands between your feet.", item.name());
                 return true;
             } else {
-                List<Point> neighbors = p.neighbors8();
+                List<Point> neighbors = p.neighbors8(rng);
                 neighbors.removeAll(checked);
                 points.addAll(neighbors);
             }
@@ -275,5 +542,97 @@ public class World {
         return false;
     }
 
-}
 
+    /**
+     * Everything about the world that isn't tiles: the turn, the items lying around, and every creature with when it
+     * next gets to act. The tiles are saved separately, a level at a time (see SaveGame).
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(SaveGame.Writer out) throws IOException {
+        writeClock(out);
+
+        for (int z = 0; z < depth; z++) {
+            List<Point> locations = items.locations(z);
+            out.writeInt(locations.size());
+            for (Point p : locations) {
+                out.writeInt(p.x);
+                out.writeInt(p.y);
+                out.writeItem(items.get(p.x, p.y, p.z));
+            }
+        }
+
+        for (int z = 0; z < depth; z++)
+            creatures[z].write(out);
+    }
+
+    /**
+     * The other half of write. Since dice can't be saved, the world's dice start over from a stream that depends on
+     * the seed and the turn.
+     *
+     * @param in
+     * @throws IOException
+     */
+    public void read(SaveGame.Reader in) throws IOException {
+        readClock(in);
+
+        for (int z = 0; z < depth; z++) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int x = in.readInt();
+                int y = in.readInt();
+                items.set(x, y, z, in.readItem());
+            }
+        }
+
+        for (int z = 0; z < depth; z++) {
+            creatures[z] = new TurnScheduler();
+            for (Creature creature : creatures[z].read(in))
+                occupants.set(creature.x, creature.y, creature.z, creature);
+        }
+    }
+
+    /**
+     * The turn and when each level was last simulated.
+     */
+    void writeClock(SaveGame.Writer out) throws IOException {
+        out.writeLong(turn);
+        for (int z = 0; z < depth; z++)
+            out.writeLong(lastSimulated[z]);
+    }
+
+    void readClock(SaveGame.Reader in) throws IOException {
+        turn = in.readLong();
+        for (int z = 0; z < depth; z++)
+            lastSimulated[z] = in.readLong();
+        rng = seed.stream("world after turn " + turn);
+    }
+
+    TurnScheduler scheduler(int z) {
+        return creatures[z];
+    }
+
+    void readScheduler(int z, SaveGame.Reader in) throws IOException {
+        creatures[z] = new TurnScheduler();
+        creatures[z].read(in);
+    }
+
+    /**
+     * A creature that was somewhere else (or nowhere, if it's new) has been read back in somewhere new, so the
+     * occupancy grid needs to catch up.
+     */
+    void relocate(Creature creature, Point from) {
+        if (from != null && occupants.get(from.x, from.y, from.z) == creature)
+            occupants.set(from.x, from.y, from.z, null);
+        occupants.set(creature.x, creature.y, creature.z, creature);
+    }
+
+    /**
+     * Take a creature off the occupancy grid. Its level's scheduler gets read in again by whoever calls this.
+     */
+    void forget(Creature creature) {
+        if (isPlaced(creature))
+            occupants.set(creature.x, creature.y, creature.z, null);
+    }
+}
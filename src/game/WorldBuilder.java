@@ -1,7 +1,9 @@
 package game;
 
+import game.events.WorldGenPhaseEvent;
+
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,20 +20,95 @@ import java.util.List;
  */
 
 public class WorldBuilder {
+    private static final byte FLOOR = (byte)Tile.FLOOR.ordinal();
+    private static final byte WALL = (byte)Tile.WALL.ordinal();
+    private static final byte STAIRS_DOWN = (byte)Tile.STAIRS_DOWN.ordinal();
+    private static final byte STAIRS_UP = (byte)Tile.STAIRS_UP.ordinal();
+
+    // Open areas smaller than this get filled in.
+    private static final int MIN_REGION_SIZE = 25;
+
     private int width;
     private int height;
     private int depth;
-    private Tile[][][] tiles;
-    private int[][][] regions;
+
+    /**
+     * The builder only ever holds two levels in memory: the one it's working on and the one above it, which is still
+     * waiting for its stairs down. Each is a flat array of tile ordinals and a flat array of region numbers indexed by
+     * y * width + x. Once a level has all its stairs it's handed over to the ChunkedTiles the World will get, which
+     * spills to disk when it gets too big, so how deep a world we can build doesn't depend on the heap.
+     */
+    private byte[] tiles;
+    private int[] regions;
+    private byte[] above;
+    private int[] aboveRegions;
     private int nextRegion;
 
+    private ChunkedTiles built;
+
+    /**
+     * All the dice the builder rolls come from its own stream of the world's seed, so the same seed always builds the
+     * same caves. The world gets the rest of the seed to play with.
+     */
+    private Rng seed;
+    private Rng rng;
+
+    /**
+     * Smoothing is the slowest part of building a big world, so by default it's done by the PackedCaveSmoother, 64
+     * tiles at a time with bands of rows on different threads. Since the builder only holds a level or two at a time,
+     * the levels are smoothed one after another; only the rows within a level are done in parallel. It gives the same
+     * caves as the plain loop in smooth, which is still here for comparison.
+     */
+    private boolean packedSmoothing = true;
+    public WorldBuilder usePackedSmoothing(boolean packedSmoothing) {
+        this.packedSmoothing = packedSmoothing;
+        return this;
+    }
+
     public WorldBuilder(int width, int height, int depth) {
+        this(width, height, depth, new Rng());
+    }
+
+    public WorldBuilder(int width, int height, int depth, long seed) {
+        this(width, height, depth, new Rng(seed));
+    }
+
+    private WorldBuilder(int width, int height, int depth, Rng seed) {
+        this.seed = seed;
+        this.rng = seed.stream("builder");
         this.width = width;
         this.height = height;
         this.depth = depth;
-        this.tiles = new Tile[width][height][depth];
-        this.regions = new int[width][height][depth];
+        this.tiles = new byte[width * height];
+        this.regions = new int[width * height];
+        this.above = new byte[width * height];
+        this.aboveRegions = new int[width * height];
         this.nextRegion = 1;
+        this.built = new ChunkedTiles(width, height, depth, ChunkedTiles.filledWith(Tile.WALL), World.MAX_RESIDENT_CHUNKS);
+    }
+
+    private int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Each step of building the world is timed with a WorldGenPhaseEvent so a flight recording shows which one a slow
+     * world spent its time in.
+     */
+    private WorldGenPhaseEvent beginPhase() {
+        WorldGenPhaseEvent event = new WorldGenPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    private void endPhase(WorldGenPhaseEvent event, String phase) {
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.width = width;
+            event.height = height;
+            event.depth = depth;
+            event.commit();
+        }
     }
 
     /**
@@ -39,10 +116,13 @@ public class WorldBuilder {
      * we need to display it via the PlayScreen class, which makes since because it's responsible for displaying the
      * world we're playing in and reacting to player input.
      *
+     * The smoothing and the stairs need to see whole levels at once so the builder works on flat arrays a level at a
+     * time, but the World it hands back keeps its tiles in chunks, see ChunkedTiles.
+     *
      * @return
      */
     public World build() {
-        return new World(tiles);
+        return new World(built, seed);
     }
 
     /**
@@ -61,13 +141,11 @@ public class WorldBuilder {
      * @return
      */
     private WorldBuilder randomizeTiles() {
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                for (int z = 0; z < depth; z++) {
-                    tiles[x][y][z] = Math.random() < 0.5 ? Tile.FLOOR : Tile.WALL;
-                }
-            }
+        WorldGenPhaseEvent event = beginPhase();
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = rng.nextBoolean() ? FLOOR : WALL;
         }
+        endPhase(event, "randomizeTiles");
         return this;
     }
 
@@ -76,7 +154,8 @@ public class WorldBuilder {
      *
      * We put the new tile into tempTiles because it's usually a bad idea to update data that you're using as input to
      * next updates. It's hard to explain but if you change the code to not use the tempTiles variable you'll see what
-     * I mean.
+     * I mean. We swap the two arrays after each pass; assigning tempTiles to tiles and carrying on meant every pass
+     * after the first was quietly smoothing in place again.
      *
      * I don't like all those nested loops. Arrow code like this is usually a bad sign but this is simple enough
      * and only used during world gen so I'll leave it as it is for now. This is also just part of working with
@@ -92,234 +171,306 @@ public class WorldBuilder {
      * @return
      */
     private WorldBuilder smooth(int times) {
-        Tile[][][] tempTiles = new Tile[width][height][depth];
+        WorldGenPhaseEvent event = beginPhase();
+        if (packedSmoothing)
+            new PackedCaveSmoother(width, height, 1).smooth(tiles, times);
+        else
+            smoothScalar(times);
+        endPhase(event, "smooth");
+        return this;
+    }
+
+    private void smoothScalar(int times) {
+        byte[] tempTiles = new byte[tiles.length];
 
         // loop so many times
         for (int time = 0; time < times; time++) {
 
             // loop through all the tiles
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    for (int z = 0; z < depth; z++) {
-                        int floors = 0;
-                        int rocks = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int floors = 0;
+                    int rocks = 0;
 
-                        // The neighbour is the tile -1 and +1
-                        // x and y combinated it's a 3x3 field of neighbours that is being checked
+                    // The neighbour is the tile -1 and +1
+                    // x and y combinated it's a 3x3 field of neighbours that is being checked
+                    for (int oy = -1; oy < 2; oy++) {
                         for (int ox = -1; ox < 2; ox++) {
-                            for (int oy = -1; oy < 2; oy++) {
-                                // if the neighbour position is out of bound just continue
-                                if (x + ox < 0 || x + ox >= width || y + oy < 0 || y + oy >= height) continue;
-                                // count if the neighbour tiles are floors or rocks
-                                if (tiles[x + ox][y + oy][z] == Tile.FLOOR) floors++;
-                                else rocks++;
-                            }
+                            // if the neighbour position is out of bound just continue
+                            if (x + ox < 0 || x + ox >= width || y + oy < 0 || y + oy >= height) continue;
+                            // count if the neighbour tiles are floors or rocks
+                            if (tiles[index(x + ox, y + oy)] == FLOOR) floors++;
+                            else rocks++;
                         }
-                        // if the neighbour tiles are mostly floors make this tile also a floor
-                        tempTiles[x][y][z] = floors >= rocks ? Tile.FLOOR : Tile.WALL;
                     }
+                    // if the neighbour tiles are mostly floors make this tile also a floor
+                    tempTiles[index(x, y)] = floors >= rocks ? FLOOR : WALL;
                 }
             }
-            // in the end, store tempTiles in the real tiles
+            // in the end, swap tempTiles and the real tiles so the next pass reads what we just wrote
+            byte[] swap = tiles;
             tiles = tempTiles;
+            tempTiles = swap;
         }
-        return this;
     }
 
     /**
      * Create a region map. Each location has a number that identifies what region of contiguous open space it belongs
      * to; i.e. if two locations have the same region number, then you can walk from one to the other without digging
-     * through walls.
+     * through walls. Regions that are too small get filled in. When this method is done, all open tiles will have a
+     * region assigned to it and we can use the regions array to see if two tiles are part of the same open space.
      *
-     * This will look at every space in the world. If it is not a wall and it does not have a region assigned then that
-     * empty space, and all empty spaces it's connected to, will be given a new region number. If the region is to
-     * small it gets removed. When this method is done, all open tiles will have a region assigned to it and we can use
-     * the regions array to see if two tiles are part of the same open space.
+     * This used to flood fill one region at a time, and every region that was too small meant another scan of the
+     * whole level to fill it in. With lots of little pockets (and big caves have lots of them) that adds up to scanning
+     * the level once per pocket. Now each level is labeled in a few straight passes, see labelRegions.
      *
      * @return
      */
-
     private WorldBuilder createRegions(){
-        /**
-         * The region variable is just a way to uniquely combine two numbers into one. This way we just need a list of
-         * the region strings instead of some list of pairs or something. If java had tuples then we could use that
-         * instead of this way.
-         */
-        regions = new int[width][height][depth];
-
-        for (int z = 0; z < depth; z++){
-            for (int x = 0; x < width; x++){
-                for (int y = 0; y < height; y++){
-                    if (tiles[x][y][z] != Tile.WALL && regions[x][y][z] == 0){
-                        int size = fillRegion(nextRegion++, x, y, z);
-                        if (size < 25) removeRegion(nextRegion - 1, z);
-                    }
-                }
-            }
-        }
+        WorldGenPhaseEvent event = beginPhase();
+        Arrays.fill(regions, 0);
+        labelRegions();
+        endPhase(event, "createRegions");
         return this;
     }
 
     /**
-     * The removeRegion method does what it sounds like. It just zero's out the region number and fills in the cave so
-     * it's solid wall. I prefer caves where the smaller areas have been filled in but this step isn't necessary.
+     * Two pass connected component labeling with union-find.
+     * https://en.wikipedia.org/wiki/Connected-component_labeling#Two-pass
      *
-     * @param region
-     * @param z
+     * The first pass goes through the level row by row. Each open tile looks at the neighbors it has already passed
+     * (left, and the three above it) and takes their label, or a new label if none of them are open. When two of those
+     * neighbors have different labels they're really the same region, so we remember that the two labels are the same
+     * with a union. The second pass swaps every label for the one its set is known by and counts the tiles in each
+     * set. The last pass gives each set that's big enough a real region number and fills in the rest with wall.
      */
-    private void removeRegion(int region, int z){
-        for (int x = 0; x < width; x++){
-            for (int y = 0; y < height; y++){
-                if (regions[x][y][z] == region){
-                    regions[x][y][z] = 0;
-                    tiles[x][y][z] = Tile.WALL;
+    private void labelRegions() {
+        int[] parents = new int[64];
+        int labels = 1; // 0 means no label.
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = index(x, y);
+                if (tiles[i] == WALL)
+                    continue;
+
+                int label = 0;
+                if (x > 0)
+                    label = union(parents, label, regions[i - 1]);
+                if (y > 0) {
+                    if (x > 0)
+                        label = union(parents, label, regions[i - width - 1]);
+                    label = union(parents, label, regions[i - width]);
+                    if (x < width - 1)
+                        label = union(parents, label, regions[i - width + 1]);
+                }
+
+                if (label == 0) {
+                    if (labels == parents.length)
+                        parents = Arrays.copyOf(parents, labels * 2);
+                    parents[labels] = labels;
+                    label = labels++;
                 }
+                regions[i] = label;
+            }
+        }
+
+        int last = width * height;
+        int[] sizes = new int[labels];
+        for (int i = 0; i < last; i++) {
+            if (regions[i] != 0) {
+                regions[i] = find(parents, regions[i]);
+                sizes[regions[i]]++;
+            }
+        }
+
+        // I prefer caves where the smaller areas have been filled in but this step isn't necessary.
+        int[] numbers = new int[labels];
+        for (int i = 0; i < last; i++) {
+            int label = regions[i];
+            if (label == 0)
+                continue;
+
+            if (sizes[label] < MIN_REGION_SIZE) {
+                regions[i] = 0;
+                tiles[i] = WALL;
+            } else {
+                if (numbers[label] == 0)
+                    numbers[label] = nextRegion++;
+                regions[i] = numbers[label];
             }
         }
     }
 
     /**
-     * The fillRegion method does a flood-fill starting with an open tile. It, and any open tile it's connected to,
-     * gets assigned the same region number. This is repeated until there are no unassigned empty neighboring tiles.
-     *
-     * @param region
-     * @param x
-     * @param y
-     * @param z
-     * @return
+     * Join the sets two labels belong to (either can be 0 for none) and return the label the joined set is known by.
      */
-    private int fillRegion(int region, int x, int y, int z) {
-        int size = 1;
-        ArrayList<Point> open = new ArrayList<Point>();
-        open.add(new Point(x,y,z));
-        regions[x][y][z] = region;
-
-        while (!open.isEmpty()) {
-            Point p = open.remove(0);
-
-            for (Point neighbor : p.neighbors8()) {
-                if (neighbor.x < 0 || neighbor.y < 0 || neighbor.x >= width || neighbor.y >= height)
-                    continue;
-
-                if (regions[neighbor.x][neighbor.y][neighbor.z] > 0
-                        || tiles[neighbor.x][neighbor.y][neighbor.z] == Tile.WALL)
-                    continue;
-
-                size++;
-                regions[neighbor.x][neighbor.y][neighbor.z] = region;
-                open.add(neighbor);
-            }
+    private static int union(int[] parents, int a, int b) {
+        if (b == 0)
+            return a;
+        if (a == 0)
+            return find(parents, b);
+
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+            return rootA;
         }
-        return size;
+        parents[rootA] = rootB;
+        return rootB;
     }
 
     /**
-     * To connect all the regions with stairs we just start at the top and connect them one layer at a time.
-     *
-     * @return
+     * The label a set is known by. Every label looked at along the way gets pointed at its grandparent so the next
+     * find is shorter.
      */
-    public WorldBuilder connectRegions(){
-        for (int z = 0; z < depth-1; z++){
-            connectRegionsDown(z);
+    private static int find(int[] parents, int label) {
+        while (parents[label] != label) {
+            parents[label] = parents[parents[label]];
+            label = parents[label];
         }
-        return this;
+        return label;
     }
 
     /**
      * To connect two adjacent layers we look at each region that sits above another region. If they haven't been
      * connected then we connect them.
      *
-     * @param z
+     * This used to build a "r1,r2" string for every location and look for it in a list of the pairs we'd already
+     * connected, then scan the whole level again for each new pair to find where the two overlap. Now one scan does
+     * it all: every location where there's floor above floor goes into a bucket for its pair of regions, found through
+     * a LongIntMap keyed by both region numbers packed into one long. The buckets are linked lists threaded through
+     * one int array (next), so a location is never more than an int. Then each bucket gets its stairs.
+     *
+     * The pairs and their locations come out in the same order the old scans found them.
+     *
+     * The level above is in above and aboveRegions, the one below it in tiles and regions.
+     *
+     * @param z the level above
+     * @return
      */
-    private void connectRegionsDown(int z){
-        List<String> connected = new ArrayList<String>();
+    private WorldBuilder connectRegionsDown(int z){
+        WorldGenPhaseEvent event = beginPhase();
+        LongIntMap buckets = new LongIntMap();
+        int[] next = new int[width * height];
+        int[] firsts = new int[16];
+        int[] lasts = new int[16];
+        int[] sizes = new int[16];
+        int count = 0;
 
         for (int x = 0; x < width; x++){
             for (int y = 0; y < height; y++){
-                String region = regions[x][y][z] + "," + regions[x][y][z+1];
-                if (tiles[x][y][z] == Tile.FLOOR
-                        && tiles[x][y][z+1] == Tile.FLOOR
-                        && !connected.contains(region)){
-                    connected.add(region);
-                    connectRegionsDown(z, regions[x][y][z], regions[x][y][z+1]);
+                int location = index(x, y);
+                if (above[location] != FLOOR || tiles[location] != FLOOR)
+                    continue;
+
+                long pair = ((long)aboveRegions[location] << 32) | (regions[location] & 0xFFFFFFFFL);
+                int bucket = buckets.get(pair, -1);
+
+                if (bucket < 0) {
+                    if (count == firsts.length) {
+                        firsts = Arrays.copyOf(firsts, count * 2);
+                        lasts = Arrays.copyOf(lasts, count * 2);
+                        sizes = Arrays.copyOf(sizes, count * 2);
+                    }
+                    bucket = count++;
+                    buckets.put(pair, bucket);
+                    firsts[bucket] = location;
+                } else {
+                    next[lasts[bucket]] = location;
                 }
+                next[location] = -1;
+                lasts[bucket] = location;
+                sizes[bucket]++;
             }
         }
+
+        for (int bucket = 0; bucket < count; bucket++){
+            List<Point> candidates = new ArrayList<Point>(sizes[bucket]);
+            for (int location = firsts[bucket]; location >= 0; location = next[location])
+                candidates.add(new Point(location % width, location / width, z));
+
+            rng.shuffle(candidates);
+            addStairs(candidates);
+        }
+        endPhase(event, "connectRegions");
+        return this;
     }
 
     /**
-     * To connect two regions, we get a list of all the locations where one is directly above the other. Then, based on
+     * To connect two regions, we take all the locations where one is directly above the other, shuffled. Then, based on
      * how much area overlaps, we connect them with stairs going up and stairs going down.
      *
-     * @param z
-     * @param r1
-     * @param r2
+     * @param candidates
      */
-    private void connectRegionsDown(int z, int r1, int r2){
-        List<Point> candidates = findRegionOverlaps(z, r1, r2);
-
+    private void addStairs(List<Point> candidates){
         int stairs = 0;
         do{
-            Point p = candidates.remove(0);
-            tiles[p.x][p.y][z] = Tile.STAIRS_DOWN;
-            tiles[p.x][p.y][z+1] = Tile.STAIRS_UP;
+            Point p = candidates.get(stairs);
+            above[index(p.x, p.y)] = STAIRS_DOWN;
+            tiles[index(p.x, p.y)] = STAIRS_UP;
             stairs++;
         }
-        while (candidates.size() / stairs > 250);
+        while ((candidates.size() - stairs) / stairs > 250);
     }
 
     /**
-     * Finding which locations of two regions overlap is pretty straight forward.
+     * Make the caves...
+     *
+     * ...one level at a time. Each level is randomized, smoothed and split into regions, then connected to the level
+     * above it, which is then finished and handed over to the world's tiles.
      *
-     * @param z
-     * @param r1
-     * @param r2
      * @return
      */
-    public List<Point> findRegionOverlaps(int z, int r1, int r2) {
-        ArrayList<Point> candidates = new ArrayList<Point>();
-
-        for (int x = 0; x < width; x++){
-            for (int y = 0; y < height; y++){
-                if (tiles[x][y][z] == Tile.FLOOR
-                        && tiles[x][y][z+1] == Tile.FLOOR
-                        && regions[x][y][z] == r1
-                        && regions[x][y][z+1] == r2){
-                    candidates.add(new Point(x,y,z));
-                }
+    public WorldBuilder makeCaves() {
+        for (int z = 0; z < depth; z++) {
+            randomizeTiles()
+                    .smooth(8)
+                    .createRegions();
+
+            if (z > 0) {
+                connectRegionsDown(z - 1)
+                        .finishLevel(z - 1, above);
             }
+
+            byte[] swapTiles = above;
+            above = tiles;
+            tiles = swapTiles;
+            int[] swapRegions = aboveRegions;
+            aboveRegions = regions;
+            regions = swapRegions;
         }
 
-        Collections.shuffle(candidates);
-        return candidates;
+        if (depth > 0)
+            finishLevel(depth - 1, above);
+        return this;
     }
 
     /**
-     * Make the caves...
+     * A level is done once it's connected to the levels on either side of it. The top one also gets the way out.
      *
+     * @param z
+     * @param level
      * @return
      */
-    public WorldBuilder makeCaves() {
-        return randomizeTiles()
-                .smooth(8)
-                .createRegions()
-                .connectRegions()
-                .addExitStairs();
+    private WorldBuilder finishLevel(int z, byte[] level) {
+        if (z == 0)
+            addExitStairs(level);
+        built.setLevel(z, level, 0);
+        return this;
     }
 
-    private WorldBuilder addExitStairs() {
+    private void addExitStairs(byte[] level) {
         int x = -1;
         int y = -1;
 
         do {
-            x = (int)(Math.random() * width);
-            y = (int)(Math.random() * height);
+            x = rng.nextInt(width);
+            y = rng.nextInt(height);
         }
-        while (tiles[x][y][0] != Tile.FLOOR);
+        while (level[index(x, y)] != FLOOR);
 
-        tiles[x][y][0] = Tile.STAIRS_UP;
-        return this;
+        level[index(x, y)] = STAIRS_UP;
     }
 }
-
-
@@ -9,9 +9,8 @@ public class BatAi extends CreatureAi {
         super(creature);
     }
 
-    // Simple random movement and bats move twice for every one of your moves.
+    // Simple random movement. Bats are fast so they get two turns for every one of your moves.
     public void onUpdate() {
         wander();
-        wander();
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import game.items.Item;
 import game.items.Spell;
 
 import java.awt.Color;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,6 +22,15 @@ import static game.Tile.RATION;
 public class Creature {
     private World world;
 
+    /**
+     * Creatures roll their dice with the world's Rng so the same seed plays out the same way.
+     *
+     * @return
+     */
+    public Rng rng() {
+        return world.rng();
+    }
+
     /**
      * The x and y coordinate are publicly accessible since they'll be used a lot, we don't need to constrain them or
      * do anything when they change, and this is easier than creating getters and setters. Getters and setters are
@@ -97,6 +107,21 @@ public class Creature {
     }
 
 
+    /**
+     * How often the creature gets to act. A creature with NORMAL_SPEED acts once per turn, twice that is twice per
+     * turn, half that is every other turn. The world's TurnScheduler takes care of the rest.
+     */
+    public static final int NORMAL_SPEED = 100;
+
+    private int speed;
+    public int speed() {
+        return speed;
+    }
+
+    public void modifySpeed(int amount) {
+        speed = Math.max(1, speed + amount);
+    }
+
     public Creature(World world, char glyph, Color color, String name, int maxHp, int attack, int defense, int vision) {
 
         // We'll use constructor injection to set the creatures property values.
@@ -115,6 +140,7 @@ public class Creature {
         this.maxFood = 1000;
         this.food = maxFood / 3 * 2;
         this.level = 1;
+        this.speed = NORMAL_SPEED;
         this.effects = new ArrayList<Effect>();
     }
 
@@ -197,6 +223,42 @@ public class Creature {
         }
     }
 
+    /**
+     * Put the creature somewhere else in the world. This doesn't check if the creature can go there, that's up to the
+     * caller, it just makes sure the world knows where everyone is standing.
+     *
+     * @param wx
+     * @param wy
+     * @param wz
+     */
+    public void moveTo(int wx, int wy, int wz) {
+        world.move(this, wx, wy, wz);
+    }
+
+    /**
+     * Find a path from where the creature is standing to somewhere else on the same level. The Path class is the nice
+     * way to call this.
+     *
+     * @param wx
+     * @param wy
+     * @param maxTries
+     * @return
+     */
+    public List<Point> pathTo(int wx, int wy, int maxTries) {
+        return world.pathFinder().findPath(this, new Point(x, y, z), new Point(wx, wy, z), maxTries);
+    }
+
+    /**
+     * How far is everything on this level from the other creature? The world shares one of these between every
+     * creature hunting the same target.
+     *
+     * @param other
+     * @return
+     */
+    public DistanceMap distancesTo(Creature other) {
+        return world.distancesTo(other.x, other.y, other.z);
+    }
+
     /**
      * Now we can grant experience based on some experience value the creature has, or on it's level, or on the killers
      * level, or by some combination. It's a simple formula for now.
@@ -251,7 +313,69 @@ public class Creature {
         regenerateHealth();
         regenerateMana();
         updateEffects();
+
+        long start = Perf.start();
         ai.onUpdate();
+        if (start != 0L)
+            Perf.stop(ai.timings(), start);
+    }
+
+    /**
+     * When a level has been frozen while the player was somewhere else, its creatures catch up all at once rather than
+     * replaying every missed turn. Regeneration is worked out in one go and the ai gets a chance to do whatever it
+     * would have done in the meantime. Effects (like poison) do run a turn at a time, but only until they wear off,
+     * so that's never more than the longest effect no matter how long the level was frozen.
+     *
+     * @param turns how many turns the creature missed
+     */
+    public void catchUp(long turns) {
+        int actions = (int)Math.min(Integer.MAX_VALUE, turns * speed / NORMAL_SPEED);
+        if (actions < 1)
+            return;
+
+        long hpCooldown = regenHpCooldown - (long)regenHpPer1000 * actions;
+        int heals = hpCooldown < 0 ? (int)((-hpCooldown + 999) / 1000) : 0;
+        regenHpCooldown = (int)(hpCooldown + heals * 1000L);
+        if (heals > 0){
+            modifyHp(heals);
+            modifyFood(-heals);
+        }
+
+        long manaCooldown = regenManaCooldown - (long)regenManaPer1000 * actions;
+        int ticks = manaCooldown < 0 ? (int)((-manaCooldown + 999) / 1000) : 0;
+        regenManaCooldown = (int)(manaCooldown + ticks * 1000L);
+        int gained = Math.min(ticks, maxMana - mana);
+        if (gained > 0){
+            modifyMana(gained);
+            modifyFood(-gained);
+        }
+
+        catchUpEffects(actions);
+
+        ai.onCatchUp(actions);
+    }
+
+    /**
+     * Run each effect for as many of the missed actions as it has left, then end it if that used it up, the same way
+     * updateEffects does.
+     *
+     * @param actions
+     */
+    private void catchUpEffects(int actions){
+        List<Effect> done = new ArrayList<Effect>();
+
+        for (Effect effect : new ArrayList<Effect>(effects)){
+            int times = Math.min(actions, effect.duration());
+            for (int i = 0; i < times; i++)
+                effect.update(this);
+
+            if (effect.isDone()) {
+                effect.end(this);
+                done.add(effect);
+            }
+        }
+
+        effects.removeAll(done);
     }
 
     /**
@@ -663,16 +787,19 @@ public class Creature {
      * @param wz
      */
     public void throwItem(Item item, int wx, int wy, int wz) {
-        Point end = new Point(x, y, 0);
+        int endX = x;
+        int endY = y;
 
-        for (Point p : new Line(x, y, wx, wy)){
-            if (!realTile(p.x, p.y, z).isGround())
+        Line.Cursor path = new Line.Cursor(x, y, wx, wy);
+        do {
+            if (!realTile(path.x(), path.y(), z).isGround())
                 break;
-            end = p;
-        }
+            endX = path.x();
+            endY = path.y();
+        } while (path.next());
 
-        wx = end.x;
-        wy = end.y;
+        wx = endX;
+        wy = endY;
 
         Creature c = creature(wx, wy, wz);
 
@@ -722,7 +849,7 @@ public class Creature {
 
         int amount = Math.max(0, attack - other.defenseValue());
 
-        amount = (int)(Math.random() * amount) + 1;
+        amount = rng().nextInt(amount) + 1;
 
         Object[] params2 = new Object[params.length+1];
         for (int i = 0; i < params.length; i++){
@@ -853,4 +980,91 @@ public class Creature {
         other.addEffect(spell.effect());
         modifyMana(-spell.manaCost());
     }
-}
\ No newline at end of file
+
+    /**
+     * Everything about the creature except its glyph, color, and name, which the SaveGame.Writer writes first since
+     * they're needed to make the creature before reading the rest back in.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(SaveGame.Writer out) throws IOException {
+        out.writeInt(x);
+        out.writeInt(y);
+        out.writeInt(z);
+        out.writeInt(maxHp);
+        out.writeInt(hp);
+        out.writeInt(attackValue);
+        out.writeInt(defenseValue);
+        out.writeInt(speed);
+        out.writeInt(visionRadius);
+        out.writeInt(hearingRadius);
+        out.writeInt(maxFood);
+        out.writeInt(food);
+        out.writeInt(xp);
+        out.writeInt(level);
+        out.writeInt(regenHpCooldown);
+        out.writeInt(regenHpPer1000);
+        out.writeInt(maxMana);
+        out.writeInt(mana);
+        out.writeInt(regenManaCooldown);
+        out.writeInt(regenManaPer1000);
+        out.writeInt(detectCreatures);
+
+        out.writeInt(inventory.size());
+        for (int i = 0; i < inventory.size(); i++)
+            out.writeItem(inventory.get(i));
+        out.writeItem(weapon);
+        out.writeItem(armor);
+
+        out.writeInt(effects.size());
+        for (Effect effect : effects)
+            out.writeEffect(effect);
+
+        out.writeAi(ai);
+    }
+
+    /**
+     * The other half of write. The effects already did whatever their start did before they were saved, so they just
+     * go back on the list without starting again.
+     *
+     * @param in
+     * @throws IOException
+     */
+    public void read(SaveGame.Reader in) throws IOException {
+        x = in.readInt();
+        y = in.readInt();
+        z = in.readInt();
+        maxHp = in.readInt();
+        hp = in.readInt();
+        attackValue = in.readInt();
+        defenseValue = in.readInt();
+        speed = in.readInt();
+        visionRadius = in.readInt();
+        hearingRadius = in.readInt();
+        maxFood = in.readInt();
+        food = in.readInt();
+        xp = in.readInt();
+        level = in.readInt();
+        regenHpCooldown = in.readInt();
+        regenHpPer1000 = in.readInt();
+        maxMana = in.readInt();
+        mana = in.readInt();
+        regenManaCooldown = in.readInt();
+        regenManaPer1000 = in.readInt();
+        detectCreatures = in.readInt();
+
+        inventory = new Inventory(in.readInt());
+        for (int i = 0; i < inventory.size(); i++)
+            inventory.set(i, in.readItem());
+        weapon = in.readItem();
+        armor = in.readItem();
+
+        effects.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++)
+            effects.add(in.readEffect());
+
+        in.readAi(this);
+    }
+}
@@ -1,11 +1,16 @@
 package game.creatures;
 
+import game.DistanceMap;
+import game.Histogram;
 import game.Line;
 import game.Path;
+import game.Perf;
 import game.Point;
+import game.SaveGame;
 import game.Tile;
 import game.items.Item;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -20,6 +25,20 @@ import java.util.List;
 public class CreatureAi {
     protected Creature creature;
 
+    // Reused for every line of sight check so looking around doesn't create any garbage.
+    private Line.Cursor sight = new Line.Cursor();
+
+    /**
+     * How long this kind of ai takes to think, shared by every creature with the same kind (see Perf). It's only
+     * looked up the first time it's needed so nobody pays for it while we're not measuring.
+     */
+    private Histogram timings;
+    public Histogram timings() {
+        if (timings == null)
+            timings = Perf.histogram("ai." + getClass().getSimpleName(), Histogram.Unit.NANOSECONDS);
+        return timings;
+    }
+
     public CreatureAi(Creature creature) {
 
         // We can rely on constructor injection to set the creature AI property values.
@@ -38,9 +57,7 @@ public class CreatureAi {
      */
     public void onEnter(int x, int y, int z, Tile tile) {
         if (tile.isGround()) {
-            creature.x = x;
-            creature.y = y;
-            creature.z = z;
+            creature.moveTo(x, y, z);
         } else {
             creature.doAction("bump into a wall");
         }
@@ -50,6 +67,17 @@ public class CreatureAi {
         // Empy on pupose. Intended to be overriden by the extending class for a specific creature.
     }
 
+    /**
+     * Called when the creature's level has been frozen for a while and it's catching up. Most creatures don't need to
+     * do anything here; anything that changes the world over time (like spreading fungus) should do roughly what it
+     * would have done over that many turns.
+     *
+     * @param turns how many turns the creature would have had
+     */
+    public void onCatchUp(int turns) {
+        // Empy on pupose. Intended to be overriden by the extending class for a specific creature.
+    }
+
     /**
      * At minimum, the PlayerAi class will use onNotify to add the messages to a list. Other CreatureAi's will just
      * ignore it.
@@ -76,12 +104,11 @@ public class CreatureAi {
         if ((creature.x - wx) * (creature.x - wx) + (creature.y - wy) * (creature.y - wy) > creature.visionRadius() * creature.visionRadius())
             return false;
 
-        for (Point p : new Line(creature.x, creature.y, wx, wy)) {
-            if (creature.realTile(p.x, p.y, wz).isGround() || p.x == wx && p.y == wy)
-                continue;
-
-            return false;
-        }
+        Line.Cursor sight = this.sight.reset(creature.x, creature.y, wx, wy);
+        do {
+            if (!sight.isAtEnd() && !creature.realTile(sight.x(), sight.y(), wz).isGround())
+                return false;
+        } while (sight.next());
 
         return true;
     }
@@ -108,8 +135,8 @@ public class CreatureAi {
      * ToDo: Enable creatures to use stairs.
      */
     public void wander() {
-        int mx = (int)(Math.random() * 3) - 1;
-        int my = (int)(Math.random() * 3) - 1;
+        int mx = creature.rng().nextInt(3) - 1;
+        int my = creature.rng().nextInt(3) - 1;
 
         Creature other = creature.creature(creature.x + mx, creature.y + my, creature.z);
 
@@ -129,17 +156,69 @@ public class CreatureAi {
         new LevelUpController().autoLevelUp(creature);
     }
 
+    /**
+     * Move one step closer to the target. Everyone hunting the player shares the world's distance map and just walks
+     * downhill on it. If that doesn't work out (too far away, or another creature is in the way) we fall back to
+     * finding our own Path like we do for any other target.
+     *
+     * @param target
+     */
     public void hunt(Creature target){
+        if (target.isPlayer() && descend(creature.distancesTo(target), target))
+            return;
+
         List<Point> points = new Path(creature, target.x, target.y).points();
+        if (points == null || points.isEmpty())
+            return;
 
         int mx = points.get(0).x - creature.x;
         int my = points.get(0).y - creature.y;
 
-        try {
-            creature.moveBy(mx, my, 0);
-        } catch(Exception e) {
-            System.out.println("creature.moveBy("+mx+", " +my+" ,0); through an error...");
+        creature.moveBy(mx, my, 0);
+    }
+
+    /**
+     * Step to the neighbor that's closest to the target on the distance map. Stepping onto the target itself is an
+     * attack.
+     *
+     * @param distances
+     * @param target
+     * @return false if there's no better place to step to
+     */
+    private boolean descend(DistanceMap distances, Creature target) {
+        int here = distances.distance(creature.x, creature.y, creature.z);
+        if (here == DistanceMap.UNREACHED)
+            return false;
+
+        int bestX = 0;
+        int bestY = 0;
+        int best = here;
+
+        for (int ox = -1; ox < 2; ox++){
+            for (int oy = -1; oy < 2; oy++){
+                int nx = creature.x + ox;
+                int ny = creature.y + oy;
+
+                if (nx == target.x && ny == target.y) {
+                    creature.moveBy(ox, oy, 0);
+                    return true;
+                }
+
+                int distance = distances.distance(nx, ny, creature.z);
+                if (distance == DistanceMap.UNREACHED || distance >= best || !creature.canEnter(nx, ny, creature.z))
+                    continue;
+
+                best = distance;
+                bestX = ox;
+                bestY = oy;
+            }
         }
+
+        if (best == here)
+            return false;
+
+        creature.moveBy(bestX, bestY, 0);
+        return true;
     }
 
     protected boolean canRangedWeaponAttack(Creature other){
@@ -206,4 +285,17 @@ public class CreatureAi {
             }
         }
     }
+
+    /**
+     * Most ais don't have anything of their own worth saving, the ones that do (see FungusAi) write it here. Which
+     * kind of ai it is gets written by SaveGame.Writer.writeAi.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(SaveGame.Writer out) throws IOException {
+    }
+
+    public void read(SaveGame.Reader in) throws IOException {
+    }
 }
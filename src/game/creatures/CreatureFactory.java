@@ -53,6 +53,7 @@ public class CreatureFactory {
      */
     public Creature newBat(int depth){
         Creature bat = new Creature(world, BAT.glyph(), BAT.color(), BAT.label(), 15, 5, 0, 8); //b
+        bat.modifySpeed(Creature.NORMAL_SPEED); // Bats are twice as fast as anything else.
         world.addAtEmptyLocation(bat, depth);
         new BatAi(bat);
         return bat;
@@ -74,6 +75,7 @@ public class CreatureFactory {
 
     public Creature newZombie(int depth, Creature player){
         Creature zombie = new Creature(world, ZOMBIE.glyph(), ZOMBIE.color(), ZOMBIE.label(), 50, 10, 10, 20); // z
+        zombie.modifySpeed(-Creature.NORMAL_SPEED / 5); // Zombies are a little slow.
         world.addAtEmptyLocation(zombie, depth);
         new ZombieAi(zombie, player);
         return zombie;
@@ -88,4 +90,28 @@ public class CreatureFactory {
         new GoblinAi(goblin, player);
         return goblin;
     }
-}
\ No newline at end of file
+
+    /**
+     * Put the right kind of ai back on a creature that's been loaded from a save (see SaveGame). The kind is the ai's
+     * class name, so renaming an ai means old saves need a case here for the old name too.
+     *
+     * @param kind
+     * @param creature
+     * @param player
+     * @param messages
+     * @param fov
+     * @return the new ai, or null if there's no such kind
+     */
+    public CreatureAi newAi(String kind, Creature creature, Creature player, List<String> messages, FieldOfView fov){
+        switch (kind){
+            case "PlayerAi":    return new PlayerAi(creature, messages, fov);
+            case "FungusAi":    return new FungusAi(creature, this);
+            case "BatAi":       return new BatAi(creature);
+            case "AlicornAi":   return new AlicornAi(creature);
+            case "ZombieAi":    return new ZombieAi(creature, player);
+            case "GoblinAi":    return new GoblinAi(creature, player);
+            case "CreatureAi":  return new CreatureAi(creature);
+            default:            return null;
+        }
+    }
+}
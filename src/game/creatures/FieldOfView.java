@@ -1,9 +1,14 @@
 package game.creatures;
 
+import game.ChunkedTiles;
+import game.Journal;
 import game.Line;
-import game.Point;
+import game.Perf;
 import game.Tile;
 import game.World;
+import game.events.FieldOfViewEvent;
+
+import java.util.Arrays;
 
 /**
  * Created by Max on 3/17/2016.
@@ -16,45 +21,165 @@ import game.World;
  * anything is blocking the vision. Raycasting is probably the slowest way, but it's quick enough and arguably has the
  * best overall look. Other methods perform differently when columns and doorways are involved.
  *
+ * Raycasting looks at the tiles near the player over and over again, once for every line that passes through them.
+ * Shadowcasting scans outward one quadrant at a time and only looks at each tile once, remembering which slopes are in
+ * shadow as it goes. Both are here so we can compare how they look and how long they take.
+ *
+ * The shadowcasting is the symmetric kind: a floor tile only counts as seen if its center is inside the light, so if
+ * the player can see a goblin the goblin can see the player too. The classic recursive version lights any tile the
+ * light touches at all, which lets you see around corners that can't see you back.
+ * https://www.albertford.com/shadowcasting/
+ *
  * We can slightly extend the common definition to not only determine what is in view but to remember what has already
  * been seen too. What's visible now and what was seen earlier are technically two different things and possibly should
  * be implemented by two different classes, but they're close enough and we can change it later if necessary.
  */
 public class FieldOfView {
+
+    public enum Algorithm {
+        RAYCASTING("raycasting"),
+        SHADOWCASTING("shadowcasting");
+
+        private String label;
+        public String label() {
+            return label;
+        }
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * The quadrant transforms for shadowcasting (north, south, east, west); each column is one quadrant's xx, xy, yx,
+     * and yy multipliers, turning a column across a row and a row's distance from the viewer into a world x and y.
+     */
+    private static final int[][] QUADRANTS = {
+            { 1,  1,  0,  0 },
+            { 0,  0,  1, -1 },
+            { 0,  0,  1,  1 },
+            {-1,  1,  0,  0 }
+    };
+
     private World world;
     private int depth;
+    private Line.Cursor ray = new Line.Cursor();
 
-    private boolean[][] visible;
+    private Algorithm algorithm;
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Instead of a new boolean[width][height] every turn, each tile gets stamped with the number of the update that
+     * last saw it. Starting a new update is just bumping the number; anything with an older stamp isn't visible.
+     *
+     * Nothing farther than the vision radius can be visible, so the stamps only cover a square window around wherever
+     * the viewer was last update, not the whole level. That keeps it small no matter how big the world gets.
+     */
+    private int[] visible = new int[0];
+    private int windowLeft;
+    private int windowTop;
+    private int windowSize;
+    private int generation;
 
     // Check if a tile is visible.
     public boolean isVisible(int x, int y, int z){
-        return z == depth && x >= 0 && y >= 0 && x < visible.length && y < visible[0].length && visible[x][y];
+        x -= windowLeft;
+        y -= windowTop;
+        return z == depth && x >= 0 && y >= 0 && x < windowSize && y < windowSize
+                && visible[y * windowSize + x] == generation;
     }
 
-    private Tile[][][] tiles;
+    /**
+     * What's been seen so far. It's as big as the world, so it's kept in chunks the same way the world's tiles are, and
+     * a chunk nobody's seen any of yet is just unknown.
+     */
+    private ChunkedTiles tiles;
     public Tile tile(int x, int y, int z){
-        return tiles[x][y][z];
+        return Tile.fromOrdinal(tiles.get(x, y, z));
+    }
+
+    public ChunkedTiles memory() {
+        return tiles;
+    }
+
+    /**
+     * Let go of the scratch file the memory spills into.
+     */
+    public void close() {
+        tiles.close();
+    }
+
+    private Journal journal;
+    public void setJournal(Journal journal) {
+        this.journal = journal;
     }
 
     public FieldOfView(World world){
+        this(world, Algorithm.RAYCASTING);
+    }
+
+    public FieldOfView(World world, Algorithm algorithm){
         this.world = world;
-        this.visible = new boolean[world.width()][world.height()];
-        this.tiles = new Tile[world.width()][world.height()][world.depth()];
-
-        for (int x = 0; x < world.width(); x++){
-            for (int y = 0; y < world.height(); y++){
-                for (int z = 0; z < world.depth(); z++){
-                    tiles[x][y][z] = Tile.UNKNOWN;
-                }
-            }
-        }
+        this.algorithm = algorithm;
+        this.tiles = new ChunkedTiles(world.width(), world.height(), world.depth(),
+                ChunkedTiles.filledWith(Tile.UNKNOWN), World.MAX_RESIDENT_CHUNKS);
     }
 
     // Update what's visible and has been seen.
     public void update(int wx, int wy, int wz, int r){
+        long start = Perf.start();
+        FieldOfViewEvent event = new FieldOfViewEvent();
+        event.begin();
+
         depth = wz;
-        visible = new boolean[world.width()][world.height()];
+        windowLeft = wx - r;
+        windowTop = wy - r;
+        windowSize = 2 * r + 1;
 
+        generation++;
+        if (visible.length < windowSize * windowSize) {
+            visible = new int[windowSize * windowSize];
+            generation = 1;
+        } else if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visible, 0);
+            generation = 1;
+        }
+
+        if (algorithm == Algorithm.SHADOWCASTING)
+            shadowcast(wx, wy, wz, r);
+        else
+            raycast(wx, wy, wz, r);
+
+        Perf.stop(Perf.FIELD_OF_VIEW, start);
+        if (event.shouldCommit()) {
+            event.x = wx;
+            event.y = wy;
+            event.z = wz;
+            event.radius = r;
+            event.algorithm = algorithm.label();
+            event.commit();
+        }
+    }
+
+    private void see(int x, int y, int z, Tile tile) {
+        visible[(y - windowTop) * windowSize + (x - windowLeft)] = generation;
+
+        // Most of what's seen was already remembered, and a Journal only wants to hear about what wasn't.
+        byte ordinal = (byte)tile.ordinal();
+        if (tiles.get(x, y, z) != ordinal) {
+            tiles.set(x, y, z, ordinal);
+            if (journal != null)
+                journal.rememberedTileChanged(x, y, z);
+        }
+    }
+
+    private void raycast(int wx, int wy, int wz, int r){
         for (int x = -r; x < r; x++){
             for (int y = -r; y < r; y++){
                 if (x*x + y*y > r*r)
@@ -64,15 +189,79 @@ public class FieldOfView {
                         || wy + y < 0 || wy + y >= world.height())
                     continue;
 
-                for (Point p : new Line(wx, wy, wx + x, wy + y)){
-                    Tile tile = world.tile(p.x, p.y, wz);
-                    visible[p.x][p.y] = true;
-                    tiles[p.x][p.y][wz] = tile;
+                ray.reset(wx, wy, wx + x, wy + y);
+                do {
+                    Tile tile = world.tile(ray.x(), ray.y(), wz);
+                    see(ray.x(), ray.y(), wz, tile);
 
                     if (!tile.isGround())
                         break;
-                }
+                } while (ray.next());
+            }
+        }
+    }
+
+    private void shadowcast(int wx, int wy, int wz, int r){
+        if (wx < 0 || wy < 0 || wx >= world.width() || wy >= world.height())
+            return;
+
+        see(wx, wy, wz, world.tile(wx, wy, wz));
+
+        for (int quadrant = 0; quadrant < 4; quadrant++){
+            scanRow(wx, wy, wz, r, 1, -1, 1, 1, 1,
+                    QUADRANTS[0][quadrant], QUADRANTS[1][quadrant], QUADRANTS[2][quadrant], QUADRANTS[3][quadrant]);
+        }
+    }
+
+    /**
+     * Scan one row of a quadrant, from the start slope to the end slope. The slopes are kept as fractions (numerator
+     * and denominator) so the tests right on the edge of a tile always come out the same way. When we go from open
+     * ground to a wall we recurse to scan the lit part of the next row, and when we go from a wall back to open ground
+     * the light starts again from there.
+     *
+     * Walls are seen as soon as any of them is in the light, so the edges of a room don't look ragged, but a floor
+     * tile is only seen when its center is between the slopes. That's what makes it symmetric.
+     */
+    private void scanRow(int cx, int cy, int cz, int r, int distance,
+                         int startNumerator, int startDenominator, int endNumerator, int endDenominator,
+                         int xx, int xy, int yx, int yy){
+        if (distance > r)
+            return;
+
+        // The columns whose tiles the light touches, rounding ties towards the middle of the row.
+        int first = Math.floorDiv(2 * distance * startNumerator + startDenominator, 2 * startDenominator);
+        int last = -Math.floorDiv(endDenominator - 2 * distance * endNumerator, 2 * endDenominator);
+
+        boolean any = false;
+        boolean previousOpaque = false;
+
+        for (int column = first; column <= last; column++){
+            int x = cx + column * xx + distance * xy;
+            int y = cy + column * yx + distance * yy;
+            Tile tile = world.tile(x, y, cz);
+            boolean opaque = !tile.isGround();
+
+            boolean centerLit = (long)column * startDenominator >= (long)distance * startNumerator
+                    && (long)column * endDenominator <= (long)distance * endNumerator;
+
+            if ((opaque || centerLit) && column * column + distance * distance <= r * r
+                    && x >= 0 && y >= 0 && x < world.width() && y < world.height())
+                see(x, y, cz, tile);
+
+            if (any && previousOpaque && !opaque) {
+                startNumerator = 2 * column - 1;
+                startDenominator = 2 * distance;
+            } else if (any && !previousOpaque && opaque) {
+                scanRow(cx, cy, cz, r, distance + 1, startNumerator, startDenominator, 2 * column - 1, 2 * distance,
+                        xx, xy, yx, yy);
             }
+
+            any = true;
+            previousOpaque = opaque;
         }
+
+        if (any && !previousOpaque)
+            scanRow(cx, cy, cz, r, distance + 1, startNumerator, startDenominator, endNumerator, endDenominator,
+                    xx, xy, yx, yy);
     }
 }
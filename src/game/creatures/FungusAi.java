@@ -1,5 +1,9 @@
 package game.creatures;
 
+import game.SaveGame;
+
+import java.io.IOException;
+
 /**
  * Created by Max on 3/11/2016.
  *
@@ -21,10 +25,33 @@ public class FungusAi extends CreatureAi {
      */
     @Override
     public void onUpdate(){
-        if (spreadcount < 5 && Math.random() < 0.02)
+        if (spreadcount < 5 && creature.rng().chance(0.02))
             spread();
     }
 
+    /**
+     * Rather than rolling the dice for every missed turn, work out how many turns until the next spread would have
+     * happened (a geometric distribution with the same 2% chance) and jump straight there. Any children get to catch
+     * up on whatever time is left after they were born.
+     *
+     * @param turns
+     */
+    @Override
+    public void onCatchUp(int turns){
+        int remaining = turns;
+
+        while (spreadcount < 5) {
+            int wait = 1 + (int)(Math.log(1.0 - creature.rng().nextDouble()) / Math.log(1.0 - 0.02));
+            if (wait > remaining)
+                break;
+
+            remaining -= wait;
+            Creature child = spread();
+            if (child != null)
+                child.catchUp(remaining);
+        }
+    }
+
     /**
      * You can play around with how far it spreads, how often it spreads, and how many times it can spread. Don't
      * forget to modify the newFungus method to pass itself into the FungusAi constructor. The last thing you need to
@@ -33,20 +60,29 @@ public class FungusAi extends CreatureAi {
      * on Java's event handling it would be very cumbersome to make our code pause and wait for user input during the
      * player's onUpdate like with many other roguelikes.
      */
-    private void spread(){
-        int x = creature.x + (int)(Math.random() * 3) - 1;
-        int y = creature.y + (int)(Math.random() * 3) - 1;
+    private Creature spread(){
+        int x = creature.x + creature.rng().nextInt(3) - 1;
+        int y = creature.y + creature.rng().nextInt(3) - 1;
 
         if (!creature.canEnter(x, y, creature.z)) {
-            return;
+            return null;
         }
 
         creature.doAction("spawn a child");
 
         Creature child = factory.newFungus(creature.z);
-        child.x = x;
-        child.y = y;
-        child.z = creature.z;
+        child.moveTo(x, y, creature.z);
         spreadcount++;
+        return child;
+    }
+
+    @Override
+    public void write(SaveGame.Writer out) throws IOException {
+        out.writeInt(spreadcount);
+    }
+
+    @Override
+    public void read(SaveGame.Reader in) throws IOException {
+        spreadcount = in.readInt();
     }
 }
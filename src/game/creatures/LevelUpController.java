@@ -68,7 +68,7 @@ public class LevelUpController {
      * @param creature
      */
     public void autoLevelUp(Creature creature){
-        options[(int)(Math.random() * options.length)].invoke(creature);
+        options[creature.rng().nextInt(options.length)].invoke(creature);
     }
 }
 
@@ -49,9 +49,7 @@ public class PlayerAi extends CreatureAi {
          * isDiggable.
          */
         if (tile.isGround()){
-            creature.x = x;
-            creature.y = y;
-            creature.z = z;
+            creature.moveTo(x, y, z);
         } else if (tile.isDiggable()) {
             creature.dig(x, y, z);
         }
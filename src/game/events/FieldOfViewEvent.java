@@ -0,0 +1,29 @@
+package game.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Working out what's visible from one spot.
+ */
+@Name("tbd.FieldOfView")
+@Label("Field Of View")
+@Category({ "TBD", "Simulation" })
+public class FieldOfViewEvent extends jdk.jfr.Event {
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Depth")
+    public int z;
+
+    @Label("Radius")
+    public int radius;
+
+    @Label("Algorithm")
+    public String algorithm;
+}
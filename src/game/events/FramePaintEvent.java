@@ -0,0 +1,21 @@
+package game.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One paint of the CharacterPanel. Only the cells that changed get drawn, so cellsRedrawn shows how much of the
+ * screen a turn actually touched.
+ */
+@Name("tbd.FramePaint")
+@Label("Frame Paint")
+@Category({ "TBD", "Rendering" })
+public class FramePaintEvent extends jdk.jfr.Event {
+
+    @Label("Cells Redrawn")
+    public int cellsRedrawn;
+
+    @Label("Cells")
+    public int cells;
+}
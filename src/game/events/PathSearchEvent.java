@@ -0,0 +1,44 @@
+package game.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One A* search by the PathFinder, whether or not it got there.
+ */
+@Name("tbd.PathSearch")
+@Label("Path Search")
+@Category({ "TBD", "Path Finding" })
+@Description("One A* search")
+public class PathSearchEvent extends jdk.jfr.Event {
+
+    @Label("Creature")
+    public String creature;
+
+    @Label("Start X")
+    public int startX;
+
+    @Label("Start Y")
+    public int startY;
+
+    @Label("End X")
+    public int endX;
+
+    @Label("End Y")
+    public int endY;
+
+    @Label("Depth")
+    public int z;
+
+    @Label("Expanded Nodes")
+    @Description("How many locations were taken off the open list")
+    public int expandedNodes;
+
+    @Label("Path Length")
+    public int pathLength;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,31 @@
+package game.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One World.update, from the moment the turn starts to when everybody who was due has acted. A recording shows these
+ * as bars on the game loop thread so a slow turn stands out, and anything else that happened during it (a path search,
+ * a garbage collection) lines up underneath.
+ *
+ * This and the other events in this package only cost anything while Java Flight Recorder is recording them:
+ *
+ *      java -XX:StartFlightRecording=filename=tbd.jfr,settings=profile -cp ... game.ApplicationMain
+ *
+ * Then open tbd.jfr in JDK Mission Control, or print them with "jfr print --categories TBD tbd.jfr".
+ */
+@Name("tbd.Turn")
+@Label("Turn")
+@Category({ "TBD", "Simulation" })
+@Description("One world update")
+public class TurnEvent extends jdk.jfr.Event {
+
+    @Label("Turn")
+    public long turn;
+
+    @Label("Creatures Updated")
+    @Description("How many creature turns were taken, counting fast creatures more than once")
+    public int creaturesUpdated;
+}
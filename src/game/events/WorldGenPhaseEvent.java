@@ -0,0 +1,28 @@
+package game.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One step of building a world, like smoothing the caves or connecting the regions with stairs.
+ */
+@Name("tbd.WorldGenPhase")
+@Label("World Generation Phase")
+@Category({ "TBD", "World Generation" })
+@Description("One step of WorldBuilder.makeCaves")
+public class WorldGenPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Depth")
+    public int depth;
+}
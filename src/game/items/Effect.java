@@ -16,12 +16,40 @@ import game.creatures.Creature;
  */
 public class Effect implements Cloneable {
     protected int duration;
+    public int duration() {
+        return duration;
+    }
+
+    /**
+     * Putting a game back together from a save file (see SaveGame) makes a brand new effect, so it needs to be told how
+     * much time the saved one had left.
+     *
+     * @param duration
+     */
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Most effects are anonymous classes made in the ItemFactory, and there's no way to save a class that doesn't have
+     * a name. So every effect gets an id instead, and ItemFactory.newEffect can make a fresh one from its id. An
+     * effect without an id doesn't do anything but count down, and that's what a saved one comes back as too.
+     */
+    private String id;
+    public String id() {
+        return id;
+    }
 
     public boolean isDone() {
         return duration < 1;
     }
 
     public Effect(int duration){
+        this(null, duration);
+    }
+
+    public Effect(String id, int duration){
+        this.id = id;
         this.duration = duration;
     }
 
@@ -45,6 +73,7 @@ public class Effect implements Cloneable {
      * @param other
      */
     public Effect(Effect other){
+        this.id = other.id;
         this.duration = other.duration;
     }
 
@@ -21,6 +21,20 @@ public class Inventory {
         return items[i];
     }
 
+    /**
+     * Put something in a particular slot. Only loading a saved game needs this, everything else uses add.
+     *
+     * @param i
+     * @param item
+     */
+    public void set(int i, Item item) {
+        items[i] = item;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
     public Inventory(int max){
         items = new Item[max];
     }
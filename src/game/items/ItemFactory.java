@@ -1,6 +1,7 @@
 package game.items;
 
 import characterPanel.CharacterPanel;
+import game.Rng;
 import game.World;
 import game.creatures.Creature;
 import game.creatures.CreatureFactory;
@@ -19,9 +20,17 @@ import static game.Tile.*;
 
 public class ItemFactory {
     private World world;
+    private Rng rng;
 
+    /**
+     * Choosing which random item to make uses its own stream from the world so more or fewer items don't change the
+     * rest of the game. Effects happen while playing so they use the creature's dice instead.
+     *
+     * @param world
+     */
     public ItemFactory(World world){
         this.world = world;
+        this.rng = world.rng("items");
     }
 
     public Item newRock(int depth){
@@ -104,7 +113,7 @@ public class ItemFactory {
     }
 
     public Item randomWeapon(int depth){
-        switch ((int)(Math.random() * 5)){
+        switch (rng.nextInt(5)){
             case 0: return newDagger(depth);
             case 1: return newSword(depth);
             case 2: return newStaff(depth);
@@ -114,7 +123,7 @@ public class ItemFactory {
     }
 
     public Item randomArmor(int depth){
-        switch ((int)(Math.random() * 3)){
+        switch (rng.nextInt(3)){
             case 0: return newLightArmor(depth);
             case 1: return newMediumArmor(depth);
             default: return newHeavyArmor(depth);
@@ -128,15 +137,7 @@ public class ItemFactory {
      */
     public Item newPotionOfHealth(int depth){
         Item item = new Item(POTION.glyph(), CharacterPanel.white, "health potion");
-        item.setQuaffEffect(new Effect(1){
-            public void start(Creature creature){
-                if (creature.hp() == creature.maxHp())
-                    return;
-
-                creature.modifyHp(15);
-                creature.doAction("look healthier");
-            }
-        });
+        item.setQuaffEffect(newEffect("health potion"));
 
         world.addAtEmptyLocation(item, depth);
         return item;
@@ -144,15 +145,7 @@ public class ItemFactory {
 
     public Item newPotionOfMana(int depth){
         Item item = new Item(POTION.glyph(), CharacterPanel.white, "mana potion");
-        item.setQuaffEffect(new Effect(1){
-            public void start(Creature creature){
-                if (creature.mana() == creature.maxMana())
-                    return;
-
-                creature.modifyMana(15);
-                creature.doAction("look electrified");
-            }
-        });
+        item.setQuaffEffect(newEffect("mana potion"));
 
         world.addAtEmptyLocation(item, depth);
         return item;
@@ -165,16 +158,7 @@ public class ItemFactory {
      */
     public Item newPotionOfPoison(int depth){
         Item item = new Item(POTION.glyph(), CharacterPanel.white, "poison potion");
-        item.setQuaffEffect(new Effect(20){
-            public void start(Creature creature){
-                creature.doAction("look sick");
-            }
-
-            public void update(Creature creature){
-                super.update(creature);
-                creature.modifyHp(-1);
-            }
-        });
+        item.setQuaffEffect(newEffect("poison potion"));
 
         world.addAtEmptyLocation(item, depth);
         return item;
@@ -187,18 +171,7 @@ public class ItemFactory {
      */
     public Item newPotionOfWarrior(int depth){
         Item item = new Item(POTION.glyph(), CharacterPanel.white, "warrior's potion");
-        item.setQuaffEffect(new Effect(20){
-            public void start(Creature creature){
-                creature.modifyAttackValue(5);
-                creature.modifyDefenseValue(5);
-                creature.doAction("look stronger");
-            }
-            public void end(Creature creature){
-                creature.modifyAttackValue(-5);
-                creature.modifyDefenseValue(-5);
-                creature.doAction("look less strong");
-            }
-        });
+        item.setQuaffEffect(newEffect("warrior's potion"));
 
         world.addAtEmptyLocation(item, depth);
         return item;
@@ -211,7 +184,7 @@ public class ItemFactory {
      * @return
      */
     public Item randomPotion(int depth){
-        switch ((int)(Math.random() * 4)){
+        switch (rng.nextInt(4)){
             case 0: return newPotionOfHealth(depth);
             case 1: return newPotionOfMana(depth);
             case 2: return newPotionOfPoison(depth);
@@ -221,55 +194,10 @@ public class ItemFactory {
 
     public Item newWhiteMagesSpellbook(int depth) {
         Item item = new Item(SPELL_BOOK.glyph(), CharacterPanel.brightWhite, "white mage's spellbook");
-        item.addWrittenSpell("minor heal", 4, new Effect(1){
-            public void start(Creature creature){
-                if (creature.hp() == creature.maxHp())
-                    return;
-
-                creature.modifyHp(20);
-                creature.doAction("look healthier");
-            }
-        }, false);
-
-        item.addWrittenSpell("major heal", 8, new Effect(1){
-            public void start(Creature creature){
-                if (creature.hp() == creature.maxHp())
-                    return;
-
-                creature.modifyHp(50);
-                creature.doAction("look healthier");
-            }
-        }, false);
-
-        item.addWrittenSpell("slow heal", 12, new Effect(50){
-            public void update(Creature creature){
-                super.update(creature);
-                creature.modifyHp(2);
-            }
-        }, false);
-
-        item.addWrittenSpell("inner strength", 16, new Effect(50){
-            public void start(Creature creature){
-                creature.modifyAttackValue(2);
-                creature.modifyDefenseValue(2);
-                creature.modifyVisionRadius(1);
-                creature.modifyRegenHpPer1000(10);
-                creature.modifyRegenManaPer1000(-10);
-                creature.doAction("seem to glow with inner strength");
-            }
-            public void update(Creature creature){
-                super.update(creature);
-                if (Math.random() < 0.25)
-                    creature.modifyHp(1);
-            }
-            public void end(Creature creature){
-                creature.modifyAttackValue(-2);
-                creature.modifyDefenseValue(-2);
-                creature.modifyVisionRadius(-1);
-                creature.modifyRegenHpPer1000(-10);
-                creature.modifyRegenManaPer1000(10);
-            }
-        }, false);
+        item.addWrittenSpell("minor heal", 4, newEffect("minor heal"), false);
+        item.addWrittenSpell("major heal", 8, newEffect("major heal"), false);
+        item.addWrittenSpell("slow heal", 12, newEffect("slow heal"), false);
+        item.addWrittenSpell("inner strength", 16, newEffect("inner strength"), false);
 
         world.addAtEmptyLocation(item, depth);
         return item;
@@ -277,79 +205,204 @@ public class ItemFactory {
 
     public Item newBlueMagesSpellbook(int depth) {
         Item item = new Item(SPELL_BOOK.glyph(), CharacterPanel.brightBlue, "blue mage's spellbook");
-        CreatureFactory creatureFactory = new CreatureFactory(world);
-
-        item.addWrittenSpell("blood to mana", 1, new Effect(1){
-            public void start(Creature creature){
-                int amount = Math.min(creature.hp() - 1, creature.maxMana() - creature.mana());
-                creature.modifyHp(-amount);
-                creature.modifyMana(amount);
-            }
-        }, true);
-
-        item.addWrittenSpell("blink", 6, new Effect(1){
-            public void start(Creature creature){
-                creature.doAction("fade out");
-
-                int mx = 0;
-                int my = 0;
-
-                do
-                {
-                    mx = (int)(Math.random() * 11) - 5;
-                    my = (int)(Math.random() * 11) - 5;
-                }
-                while (!creature.canEnter(creature.x+mx, creature.y+my, creature.z)
-                        && creature.canSee(creature.x+mx, creature.y+my, creature.z));
-
-                creature.moveBy(mx, my, 0);
-
-                creature.doAction("fade in");
-            }
-        }, true);
-
-        item.addWrittenSpell("summon bats", 11, new Effect(1){
-            public void start(Creature creature){
-                for (int ox = -1; ox < 2; ox++){
-                    for (int oy = -1; oy < 2; oy++){
-                        int nx = creature.x + ox;
-                        int ny = creature.y + oy;
-                        if (ox == 0 && oy == 0
-                                || creature.creature(nx, ny, creature.z) != null)
-                            continue;
-
-                        Creature bat = creatureFactory.newBat(depth);
-
-                        if (!bat.canEnter(nx, ny, creature.z)){
-                            world.remove(bat);
-                            continue;
+        item.addWrittenSpell("blood to mana", 1, newEffect("blood to mana"), true);
+        item.addWrittenSpell("blink", 6, newEffect("blink"), true);
+        item.addWrittenSpell("summon bats", 11, newEffect("summon bats"), false);
+        item.addWrittenSpell("detect creatures", 16, newEffect("detect creatures"), false);
+
+        world.addAtEmptyLocation(item, depth);
+        return item;
+    }
+
+    /**
+     * Every effect a potion or a spell can have, by id. The potions and spellbooks above get their effects from here,
+     * and so does loading a saved game, which only has the id and how long the effect had left (see Effect). A new
+     * effect needs a new case here; an id we don't know gets null.
+     *
+     * @param id
+     * @return
+     */
+    public Effect newEffect(String id){
+        switch (id){
+            case "health potion":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        if (creature.hp() == creature.maxHp())
+                            return;
+
+                        creature.modifyHp(15);
+                        creature.doAction("look healthier");
+                    }
+                };
+
+            case "mana potion":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        if (creature.mana() == creature.maxMana())
+                            return;
+
+                        creature.modifyMana(15);
+                        creature.doAction("look electrified");
+                    }
+                };
+
+            case "poison potion":
+                return new Effect(id, 20){
+                    public void start(Creature creature){
+                        creature.doAction("look sick");
+                    }
+
+                    public void update(Creature creature){
+                        super.update(creature);
+                        creature.modifyHp(-1);
+                    }
+                };
+
+            case "warrior's potion":
+                return new Effect(id, 20){
+                    public void start(Creature creature){
+                        creature.modifyAttackValue(5);
+                        creature.modifyDefenseValue(5);
+                        creature.doAction("look stronger");
+                    }
+                    public void end(Creature creature){
+                        creature.modifyAttackValue(-5);
+                        creature.modifyDefenseValue(-5);
+                        creature.doAction("look less strong");
+                    }
+                };
+
+            case "minor heal":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        if (creature.hp() == creature.maxHp())
+                            return;
+
+                        creature.modifyHp(20);
+                        creature.doAction("look healthier");
+                    }
+                };
+
+            case "major heal":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        if (creature.hp() == creature.maxHp())
+                            return;
+
+                        creature.modifyHp(50);
+                        creature.doAction("look healthier");
+                    }
+                };
+
+            case "slow heal":
+                return new Effect(id, 50){
+                    public void update(Creature creature){
+                        super.update(creature);
+                        creature.modifyHp(2);
+                    }
+                };
+
+            case "inner strength":
+                return new Effect(id, 50){
+                    public void start(Creature creature){
+                        creature.modifyAttackValue(2);
+                        creature.modifyDefenseValue(2);
+                        creature.modifyVisionRadius(1);
+                        creature.modifyRegenHpPer1000(10);
+                        creature.modifyRegenManaPer1000(-10);
+                        creature.doAction("seem to glow with inner strength");
+                    }
+                    public void update(Creature creature){
+                        super.update(creature);
+                        if (creature.rng().chance(0.25))
+                            creature.modifyHp(1);
+                    }
+                    public void end(Creature creature){
+                        creature.modifyAttackValue(-2);
+                        creature.modifyDefenseValue(-2);
+                        creature.modifyVisionRadius(-1);
+                        creature.modifyRegenHpPer1000(-10);
+                        creature.modifyRegenManaPer1000(10);
+                    }
+                };
+
+            case "blood to mana":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        int amount = Math.min(creature.hp() - 1, creature.maxMana() - creature.mana());
+                        creature.modifyHp(-amount);
+                        creature.modifyMana(amount);
+                    }
+                };
+
+            case "blink":
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        creature.doAction("fade out");
+
+                        int mx = 0;
+                        int my = 0;
+
+                        do
+                        {
+                            mx = creature.rng().nextInt(11) - 5;
+                            my = creature.rng().nextInt(11) - 5;
                         }
+                        while (!creature.canEnter(creature.x+mx, creature.y+my, creature.z)
+                                && creature.canSee(creature.x+mx, creature.y+my, creature.z));
 
-                        bat.x = nx;
-                        bat.y = ny;
-                        bat.z = creature.z;
+                        creature.moveBy(mx, my, 0);
 
-                        creature.summon(bat);
+                        creature.doAction("fade in");
                     }
-                }
-            }
-        }, false);
-
-        item.addWrittenSpell("detect creatures", 16, new Effect(75){
-            public void start(Creature creature){
-                creature.doAction("look far off into the distance");
-                creature.modifyDetectCreatures(1);
-            }
-            public void end(Creature creature){
-                creature.modifyDetectCreatures(-1);
-            }
-        }, false);
-        world.addAtEmptyLocation(item, depth);
-        return item;
+                };
+
+            // The bats used to start out on the level the spellbook was made on; now it's the caster's level.
+            case "summon bats":
+                final CreatureFactory creatureFactory = new CreatureFactory(world);
+                return new Effect(id, 1){
+                    public void start(Creature creature){
+                        for (int ox = -1; ox < 2; ox++){
+                            for (int oy = -1; oy < 2; oy++){
+                                int nx = creature.x + ox;
+                                int ny = creature.y + oy;
+                                if (ox == 0 && oy == 0
+                                        || creature.creature(nx, ny, creature.z) != null)
+                                    continue;
+
+                                Creature bat = creatureFactory.newBat(creature.z);
+
+                                if (!bat.canEnter(nx, ny, creature.z)){
+                                    world.remove(bat);
+                                    continue;
+                                }
+
+                                bat.moveTo(nx, ny, creature.z);
+
+                                creature.summon(bat);
+                            }
+                        }
+                    }
+                };
+
+            case "detect creatures":
+                return new Effect(id, 75){
+                    public void start(Creature creature){
+                        creature.doAction("look far off into the distance");
+                        creature.modifyDetectCreatures(1);
+                    }
+                    public void end(Creature creature){
+                        creature.modifyDetectCreatures(-1);
+                    }
+                };
+
+            default:
+                return null;
+        }
     }
 
     public Item randomSpellBook(int depth){
-        switch ((int)(Math.random() * 2)){
+        switch (rng.nextInt(2)){
             case 0: return newWhiteMagesSpellbook(depth);
             default: return newBlueMagesSpellbook(depth);
         }
@@ -1,6 +1,7 @@
 package game.screens;
 
 import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 
 import java.awt.event.KeyEvent;
 
@@ -16,7 +17,7 @@ import java.awt.event.KeyEvent;
  */
 public class ASCIIScreen implements Screen {
 
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         terminal.write("ASCII Codes.", 1, 1);
 
         int asciiCode = 0;
@@ -1,7 +1,6 @@
 package game.screens;
 
 import game.Line;
-import game.Point;
 import game.creatures.Creature;
 
 /**
@@ -20,12 +19,11 @@ public class FireWeaponScreen extends TargetBasedScreen {
         if (!player.canSee(x, y, player.z))
             return false;
 
-        for (Point p : new Line(player.x, player.y, x, y)){
-            if (!player.realTile(p.x, p.y, player.z).isGround())
-                return false;
-        }
-
-        return true;
+        return Line.walk(player.x, player.y, x, y, new Line.Visitor() {
+            public boolean visit(int lx, int ly) {
+                return player.realTile(lx, ly, player.z).isGround();
+            }
+        });
     }
 
     public void selectWorldCoordinate(int x, int y, int screenX, int screenY){
@@ -1,6 +1,6 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 
 import java.awt.event.KeyEvent;
 
@@ -12,7 +12,7 @@ import java.awt.event.KeyEvent;
  */
 public class HelpScreen implements Screen {
 
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         terminal.clear();
         terminal.writeCenter("roguelike help", 1);
         terminal.write("Descend the Caves Of Slight Danger, find the lost Teddy Bear, and return to", 1, 3);
@@ -30,6 +30,9 @@ public class HelpScreen implements Screen {
         terminal.write("[;] to look around", 2, y++);
         terminal.write("[t] to throw something", 2, y++);
         terminal.write("[f] to fire a ranged weapon", 2, y++);
+        terminal.write("[v] to switch between raycasting and shadowcasting", 2, y++);
+        terminal.write("[p] to show or hide performance numbers", 2, y++);
+        terminal.write("[S] to save the game", 2, y++);
         terminal.write("Number Keypad & [y,u,b,n,h,j,k,l] to move", 2, y++);
 
         terminal.writeCenter("-- press any key to continue --", 22);
@@ -1,6 +1,6 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 import game.Tile;
 import game.creatures.Creature;
 import game.items.Item;
@@ -66,7 +66,7 @@ public abstract class InventoryBasedScreen implements Screen {
      *
      * @param terminal
      */
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         ArrayList<String> lines = getList();
 
         int y = SCREEN_HEIGHT - lines.size();
@@ -81,8 +81,6 @@ public abstract class InventoryBasedScreen implements Screen {
 
         terminal.clear(Tile.UNKNOWN.glyph(), 0, SCREEN_HEIGHT, SCREEN_WIDTH, 1);
         terminal.write("What would you like to " + getVerb() + "?", 2, SCREEN_HEIGHT);
-
-        terminal.repaint();
     }
 
     /**
@@ -1,6 +1,6 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 import game.Tile;
 import game.creatures.Creature;
 import game.creatures.LevelUpController;
@@ -23,7 +23,7 @@ public class LevelUpScreen implements Screen {
     }
 
     @Override
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         List<String> options = controller.getLevelUpOptions();
 
         int y = 5;
@@ -3,7 +3,8 @@ package game.screens;
 import java.awt.event.KeyEvent;
 import java.io.UnsupportedEncodingException;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
+import game.NewGamePreparer;
 
 /**
  * Created by Max on 3/9/2016.
@@ -12,8 +13,13 @@ import characterPanel.CharacterPanel;
  */
 public class LoseScreen implements Screen {
 
+    // Get the next game going in case they want to play again.
+    public LoseScreen() {
+        NewGamePreparer.prepare();
+    }
+
     @Override
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         terminal.write("You lost.", 1, 1);
         terminal.writeCenter("-- press [enter] to restart --", SCREEN_HEIGHT);
     }
@@ -0,0 +1,60 @@
+package game.screens;
+
+import characterPanel.Renderer;
+import game.Histogram;
+import game.Perf;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Performance numbers drawn over the top right corner of the map. Unlike the other subscreens this one doesn't take
+ * over the keyboard, the PlayScreen keeps playing underneath it and just draws it last, so you can walk around and
+ * watch the numbers change. Press 'p' again to hide it.
+ *
+ * Measuring is only turned on while the overlay is showing (or the log is being written, see Perf), so the numbers
+ * start from the first turn after it's opened.
+ */
+public class PerfScreen implements Screen {
+    private static final int WIDTH = 70;
+
+    private Color foreground = Color.white;
+    private Color background = new Color(0, 0, 64);
+
+    public PerfScreen() {
+        Perf.enable();
+    }
+
+    /**
+     * Stop measuring; the overlay's going away.
+     */
+    public void close() {
+        Perf.disable();
+    }
+
+    @Override
+    public void displayOutput(Renderer terminal) {
+        // Only show what's actually been measured.
+        List<Histogram.Snapshot> snapshots = new ArrayList<Histogram.Snapshot>();
+        for (Histogram.Snapshot snapshot : Perf.snapshot()) {
+            if (snapshot.count() > 0)
+                snapshots.add(snapshot);
+        }
+
+        int left = SCREEN_WIDTH - WIDTH;
+        int y = 0;
+
+        terminal.clear(' ', left, y, WIDTH, snapshots.size() + 1, foreground, background);
+        terminal.write(" performance, last " + Histogram.WINDOW + " of each   [p] to hide", left, y++, Color.yellow, background);
+
+        for (Histogram.Snapshot snapshot : snapshots)
+            terminal.write(" " + snapshot, left, y++, foreground, background);
+    }
+
+    @Override
+    public Screen respondToUserInput(KeyEvent key) {
+        return this;
+    }
+}
@@ -1,25 +1,28 @@
 package game.screens;
 
 import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
+import game.Journal;
+import game.NewGame;
+import game.NewGamePreparer;
+import game.Perf;
+import game.SaveGame;
 import game.Tile;
 import game.World;
-import game.WorldBuilder;
 import game.creatures.Creature;
-import game.creatures.CreatureFactory;
 import game.creatures.FieldOfView;
 import game.items.Item;
-import game.items.ItemFactory;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
 import java.util.List;
 
 import static characterPanel.CharacterData.createBitmapGlyph;
 import static characterPanel.CharacterData.createFontGlyph;
-import static characterPanel.CharacterPanel.glyphMap;
+import static characterPanel.CharacterPanel.glyphs;
 
 /**
  * Created by Max on 3/9/2016.
@@ -32,9 +35,9 @@ import static characterPanel.CharacterPanel.glyphMap;
  * with a sub screen and delegate input and output to it. Once the subscreen is done, it get's set to null and the
  * PlayScreen works as normal.
  *
- * The PlayScreen is getting a little out of hand now that it creates a new world, displays the world, handles user
- * commands and deals with subscreens. Maybe the part about setting up a new game should be moved somewhere else.
- * ToDo: Move game setup out of PlayScreen.
+ * The PlayScreen was getting a little out of hand when it created a new world, displayed the world, handled user
+ * commands and dealt with subscreens. Setting up a new game has moved to NewGame, so now it's handed a game that's
+ * ready to play.
   */
 
 public class PlayScreen implements Screen {
@@ -43,23 +46,80 @@ public class PlayScreen implements Screen {
      * displaying the world. Here's the variables and constructor to add to the PlayScreen:
      */
 
+    private NewGame game;
     private World world;
     private Creature player;
     private List<String> messages;
     private FieldOfView fov;
     private Screen subscreen;
+    private PerfScreen perfOverlay;
 
+    /**
+     * Autosaves every turn, see Journal. If the game stops without the player quitting it can be picked up again from
+     * the StartScreen.
+     */
+    private Journal journal;
+
+    /**
+     * Start playing whatever game the NewGamePreparer has ready, which is usually already built by the time the player
+     * gets here (see StartScreen).
+     */
     public PlayScreen() throws UnsupportedEncodingException {
+        this(NewGamePreparer.take());
+    }
+
+    public PlayScreen(NewGame game) {
+        this.game = game;
+        world = game.world();
+        player = game.player();
+        messages = game.messages();
+        fov = game.fov();
+
+        try {
+            journal = Journal.start(game, Journal.DEFAULT_SNAPSHOT, Journal.DEFAULT_JOURNAL);
+        } catch (IOException e) {
+            player.notify("Autosaving is off: %s", e.getMessage());
+        }
+    }
 
-        messages = new ArrayList<String>();
-        createWorld();
-        fov = new FieldOfView(world);
+    /**
+     * Write down what changed. If autosaving stops working the player hears about it once and the game carries on
+     * without it.
+     */
+    private void autosave(){
+        if (journal == null)
+            return;
+
+        try {
+            journal.endTurn();
+        } catch (IOException e) {
+            journal.close();
+            journal = null;
+            player.notify("Autosaving stopped: %s", e.getMessage());
+            return;
+        }
 
-        CreatureFactory creatureFactory = new CreatureFactory(world);
-        createCreatures(creatureFactory);
+        if (journal.failure() != null) {
+            player.notify("Autosaving stopped: %s", journal.failure().getMessage());
+            journal.close();
+            journal = null;
+        }
+    }
 
-        ItemFactory itemFactory = new ItemFactory(world);
-        createItems(itemFactory);
+    /**
+     * The game's over, win or lose, so there's nothing to pick back up and nothing left to keep on disk.
+     */
+    private Screen gameOver(Screen screen){
+        if (journal != null)
+            journal.discard();
+        journal = null;
+        game.close();
+
+        // Perf keeps timing as long as anyone's watching, so stop watching.
+        if (perfOverlay != null)
+            perfOverlay.close();
+        perfOverlay = null;
+        return screen;
     }
 
     public static void createTiles() throws UnsupportedEncodingException {
@@ -69,96 +129,20 @@ public class PlayScreen implements Screen {
             char character = t.glyph();
 
             BufferedImage img = createFontGlyph(character, "DejaVu Sans Mono",15,0,false);
-            glyphMap.put(character, img);
+            glyphs.put(character, img);
         }
 
         // Replace the WALL tile with aa completely solid block.
-        glyphMap.put(Tile.WALL.glyph(), createBitmapGlyph(Tile.solidBlock, false));
+        glyphs.put(Tile.WALL.glyph(), createBitmapGlyph(Tile.solidBlock, false));
 
         // Add glyphs for the basic alpha-numeric and punctuation characters.
         for (int i = 32; i <= 126; i++) {
             BufferedImage img = createFontGlyph(i, "DejaVu Sans Mono",15,0,false);
-            glyphMap.put((char)i, img);
+            glyphs.put((char)i, img);
         }
 
     }
 
-    /**
-     * The createWorld method does exactly that, create's a world. I have a feeling this is going to expand as we make
-     * the world more interesting so putting it in a separate method will reduce how tangled it get's with other code
-     * and make changes easier later on.
-     */
-    private void createWorld(){
-        // world = new WorldBuilder(90, 32, 5)
-        world = new WorldBuilder(SCREEN_WIDTH, SCREEN_HEIGHT, 5)
-                .makeCaves()
-                .build();
-    }
-
-    /**
-     * Populate the world with both our player and also a bunch of fungus.
-     *
-     * @param creatureFactory
-     */
-    private void createCreatures(CreatureFactory creatureFactory){
-        player = creatureFactory.newPlayer(messages, fov); //Create the player "creature".
-
-        for (int z = 0; z < world.depth(); z++){
-
-            // Two fungus among us.
-            for (int i = 0; i < 2; i++) {
-                creatureFactory.newFungus(z);
-            }
-
-            // How about 20 bats per level.
-            for (int i = 0; i < 20; i++){
-                creatureFactory.newBat(z);
-            }
-
-            // Add a couple of zombies and goblins to each level.
-            for (int i = 0; i < z + 3; i++){
-                creatureFactory.newZombie(z, player);
-                creatureFactory.newGoblin(z, player);
-            }
-
-            // Just one alicorn per level.
-            creatureFactory.newAlicorn(z);
-        }
-    }
-
-    private void createItems(ItemFactory itemFactory) {
-
-        // Scatter some rocks around.
-        for (int z = 0; z < world.depth(); z++){
-            for (int i = 0; i < world.width() * world.height() / 20; i++){
-                itemFactory.newRock(z);
-            }
-
-            // Drop a few food rations per level.
-            for (int i = 0; i < world.width() * world.height() / 1000; i++){
-                itemFactory.newRation(z);
-            }
-
-            for (int i = 0; i < 5; i++){
-                itemFactory.randomArmor(z);
-            }
-
-            for (int i = 0; i < 5; i++){
-                itemFactory.randomWeapon(z);
-            }
-
-            for (int i = 0; i < 5; i++) {
-                itemFactory.randomPotion(z);
-            }
-
-            for (int i=0; i < 20; i++) {
-                itemFactory.randomSpellBook(z);
-            }
-        }
-
-        // Find this and return it to the surface and you win the game.
-        itemFactory.newVictoryItem(world.depth() - 1);
-    }
     /**
      * We need a method to tell us how far along the X axis we should scroll. This makes sure we never try to scroll
      * too far to the left or right.
@@ -200,7 +184,7 @@ public class PlayScreen implements Screen {
      * @param left
      * @param top
      */
-    private void displayTiles(CharacterPanel terminal, int left, int top) {
+    private void displayTiles(Renderer terminal, int left, int top) {
         fov.update(player.x, player.y, player.z, player.visionRadius());
 
         for (int x = 0; x < SCREEN_WIDTH; x++){
@@ -219,7 +203,9 @@ public class PlayScreen implements Screen {
 
 
     @Override
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
+        long start = Perf.start();
+
         /**
          *  Show the section we're looking at on part of the screen - the rest of the screen is for user stats,
          *  messages, etc.
@@ -254,6 +240,12 @@ public class PlayScreen implements Screen {
          */
         if (subscreen != null)
             subscreen.displayOutput(terminal);
+
+        // The performance overlay goes on top of everything, even subscreens.
+        if (perfOverlay != null)
+            perfOverlay.displayOutput(terminal);
+
+        Perf.stop(Perf.DISPLAY, start);
     }
 
     /**
@@ -283,7 +275,7 @@ public class PlayScreen implements Screen {
      * @param terminal
      * @param messages
      */
-    private void displayMessages(CharacterPanel terminal, List<String> messages) {
+    private void displayMessages(Renderer terminal, List<String> messages) {
         int top = SCREEN_HEIGHT - messages.size();
         for (int i = 0; i < messages.size(); i++){
             terminal.writeCenter(messages.get(i), top + i);
@@ -291,6 +283,42 @@ public class PlayScreen implements Screen {
         messages.clear();
     }
 
+    /**
+     * Flip between raycasting and shadowcasting so we can compare how they look while playing.
+     */
+    private void switchFieldOfView(){
+        if (fov.algorithm() == FieldOfView.Algorithm.RAYCASTING)
+            fov.setAlgorithm(FieldOfView.Algorithm.SHADOWCASTING);
+        else
+            fov.setAlgorithm(FieldOfView.Algorithm.RAYCASTING);
+
+        player.notify("You now see by %s.", fov.algorithm().label());
+    }
+
+    /**
+     * Show or hide the performance overlay.
+     */
+    private void switchPerfOverlay(){
+        if (perfOverlay == null) {
+            perfOverlay = new PerfScreen();
+        } else {
+            perfOverlay.close();
+            perfOverlay = null;
+        }
+    }
+
+    /**
+     * Save the game so it can be picked up again from the StartScreen. Saving doesn't take a turn.
+     */
+    private void saveGame(){
+        try {
+            SaveGame.save(game, SaveGame.DEFAULT_FILE);
+            player.notify("You save the game.");
+        } catch (IOException e) {
+            player.notify("Couldn't save the game: %s", e.getMessage());
+        }
+    }
+
     private boolean userIsTryingToExit(){
         return player.z == 0 && world.tile(player.x, player.y, player.z) == Tile.STAIRS_UP;
     }
@@ -298,9 +326,9 @@ public class PlayScreen implements Screen {
     private Screen userExits(){
         for (Item item : player.inventory().getItems()){
             if (item != null && item.name().equals("victory item"))
-                return new WinScreen();
+                return gameOver(new WinScreen());
         }
-        return new LoseScreen();
+        return gameOver(new LoseScreen());
     }
 
     @Override
@@ -371,6 +399,9 @@ public class PlayScreen implements Screen {
             switch (key.getKeyChar()) {
                 case '?':                   subscreen = new HelpScreen(); break;            // Help
                 case 'x':                   subscreen = new ExamineScreen(player); break;   // Examine Invemtory
+                case 'v':                   switchFieldOfView(); break;                     // Switch FOV
+                case 'p':                   switchPerfOverlay(); break;                     // Performance
+                case 'S':                   saveGame(); return this;                        // Save
                 case 'g':
                 case ',':                   player.pickup(); break;
                 case '<':                   if (userIsTryingToExit()) return userExits();
@@ -381,7 +412,9 @@ public class PlayScreen implements Screen {
 
         if (subscreen == null) world.update(); // Update the world only if we don't have a subscreen.
 
-        if (player.hp() < 1) return new LoseScreen();
+        if (player.hp() < 1) return gameOver(new LoseScreen());
+
+        autosave();
 
         /**
          * After responding to the player's input, we need to see if that resulted in a level up. If so, we jump into a
@@ -1,6 +1,6 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 import game.Tile;
 import game.creatures.Creature;
 import game.items.Item;
@@ -28,7 +28,7 @@ public class ReadSpellScreen implements Screen {
         this.sy = sy;
     }
 
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         ArrayList<String> lines = getList();
 
         int y = 23 - lines.size();
@@ -43,8 +43,6 @@ public class ReadSpellScreen implements Screen {
 
         terminal.clear(Tile.UNKNOWN.glyph(), 0, SCREEN_HEIGHT, SCREEN_WIDTH, 1);
         terminal.write("What would you like to read?", 2, SCREEN_HEIGHT);
-
-        terminal.repaint();
     }
 
     private ArrayList<String> getList() {
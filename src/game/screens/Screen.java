@@ -3,7 +3,7 @@ package game.screens;
 import java.awt.event.KeyEvent;
 import java.io.UnsupportedEncodingException;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 
 /**
  * Created by Max on 3/9/2016.
@@ -38,11 +38,11 @@ public interface Screen {
     int SCREEN_WIDTH = 100;
     int SCREEN_HEIGHT = 30;
     /**
-     * The displayOutput method takes an CharacterPanel to display itself on and the respondToUserInput takes the KeyEvent
+     * The displayOutput method takes a Renderer (usually our CharacterPanel) to display itself on and the respondToUserInput takes the KeyEvent
      * and can return the new screen. This way pressing a key can result in looking at a different screen.
      * @param terminal
      */
-    void displayOutput(CharacterPanel terminal);
+    void displayOutput(Renderer terminal);
 
     Screen respondToUserInput(KeyEvent key) throws UnsupportedEncodingException;
 }
@@ -1,9 +1,13 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
+import game.Journal;
+import game.NewGamePreparer;
+import game.SaveGame;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
 /**
@@ -14,16 +18,44 @@ import java.io.UnsupportedEncodingException;
  */
 public class StartScreen implements Screen {
 
+    // Why the saved game couldn't be loaded, if it couldn't.
+    private String problem;
+
+    /**
+     * Start building the game while the player reads this, so it's ready when they press space.
+     */
+    public StartScreen() {
+        NewGamePreparer.prepare();
+    }
+
     @Override
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         terminal.write("Tempted By Dragons", 1, 1);
         terminal.writeCenter("-- press [space] to start --", SCREEN_HEIGHT);
-        terminal.setSize(Toolkit.getDefaultToolkit().getScreenSize());
+        if (Journal.exists(Journal.DEFAULT_SNAPSHOT) || SaveGame.exists(SaveGame.DEFAULT_FILE))
+            terminal.writeCenter("-- press [c] to continue your saved game --", SCREEN_HEIGHT - 1);
+        if (problem != null)
+            terminal.writeCenter(problem, SCREEN_HEIGHT - 3);
+
+        // Only a terminal in a window has a size to set.
+        if (terminal instanceof Component)
+            ((Component)terminal).setSize(Toolkit.getDefaultToolkit().getScreenSize());
     }
 
     @Override
     public Screen respondToUserInput(KeyEvent key) throws UnsupportedEncodingException {
         switch (key.getKeyCode()) {
+            case KeyEvent.VK_C:
+                // The autosave is always at least as recent as the last time the player saved.
+                try {
+                    if (Journal.exists(Journal.DEFAULT_SNAPSHOT))
+                        return new PlayScreen(Journal.recover(Journal.DEFAULT_SNAPSHOT, Journal.DEFAULT_JOURNAL));
+                    if (SaveGame.exists(SaveGame.DEFAULT_FILE))
+                        return new PlayScreen(SaveGame.load(SaveGame.DEFAULT_FILE));
+                } catch (IOException e) {
+                    problem = "Couldn't load the saved game: " + e.getMessage();
+                }
+                break;
             case KeyEvent.VK_SPACE:
                 try {
                     return new PlayScreen();  // Start up the game and go to the "Play" Screen
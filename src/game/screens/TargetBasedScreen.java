@@ -1,8 +1,7 @@
 package game.screens;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 import game.Line;
-import game.Point;
 import game.Tile;
 import game.creatures.Creature;
 
@@ -41,13 +40,14 @@ public abstract class TargetBasedScreen implements Screen {
      *
      * @param terminal
      */
-    public void displayOutput(CharacterPanel terminal) {
-        for (Point p : new Line(sx, sy, sx + x, sy + y)){
-            if (p.x < 0 || p.x > SCREEN_WIDTH || p.y < 0 || p.y > SCREEN_HEIGHT)
+    public void displayOutput(Renderer terminal) {
+        Line.Cursor line = new Line.Cursor(sx, sy, sx + x, sy + y);
+        do {
+            if (line.x() < 0 || line.x() > SCREEN_WIDTH || line.y() < 0 || line.y() > SCREEN_HEIGHT)
                 continue;
 
-            terminal.write(Tile.TARGETING_LINE.glyph(), p.x, p.y, Tile.TARGETING_LINE.color());
-        }
+            terminal.write(Tile.TARGETING_LINE.glyph(), line.x(), line.y(), Tile.TARGETING_LINE.color());
+        } while (line.next());
 
         terminal.clear(Tile.UNKNOWN.glyph(), 0, SCREEN_HEIGHT, SCREEN_WIDTH, 1);
         terminal.write(caption, 0, SCREEN_HEIGHT);
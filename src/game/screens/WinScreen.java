@@ -3,7 +3,8 @@ package game.screens;
 import java.awt.event.KeyEvent;
 import java.io.UnsupportedEncodingException;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
+import game.NewGamePreparer;
 
 /**
  * Created by Max on 3/9/2016.
@@ -12,7 +13,12 @@ import characterPanel.CharacterPanel;
  */
 public class WinScreen implements Screen {
 
-    public void displayOutput(CharacterPanel terminal) {
+    // Get the next game going in case they want to play again.
+    public WinScreen() {
+        NewGamePreparer.prepare();
+    }
+
+    public void displayOutput(Renderer terminal) {
         terminal.write("You won.", 1, 1);
         terminal.writeCenter("-- press [enter] to restart --", SCREEN_HEIGHT);
     }
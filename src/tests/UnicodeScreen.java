@@ -1,6 +1,6 @@
 package tests;
 
-import characterPanel.CharacterPanel;
+import characterPanel.Renderer;
 import game.screens.Screen;
 
 import java.awt.event.KeyEvent;
@@ -17,7 +17,7 @@ import java.awt.event.KeyEvent;
  */
 public class UnicodeScreen implements Screen {
 
-    public void displayOutput(CharacterPanel terminal) {
+    public void displayOutput(Renderer terminal) {
         terminal.write("Unicode Glyphs.", 1, 1);
 
 